@@ -31,7 +31,8 @@ public class AutoSaveTask implements Runnable {
         }
 
         running = true;
-        task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this, period * 20L, period * 20L);
+        // Snapshots are taken on the main thread, the writing happens in the background.
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this, period * 20L, period * 20L);
         log.info("Starting auto-save.. with an interval of " + period + " seconds.");
     }
 
@@ -9,10 +9,13 @@ import nl.aurorion.blockregen.compatibility.CompatibilityManager;
 import nl.aurorion.blockregen.configuration.Files;
 import nl.aurorion.blockregen.drop.ItemManager;
 import nl.aurorion.blockregen.event.EventManager;
+import nl.aurorion.blockregen.listener.ChunkListener;
 import nl.aurorion.blockregen.listener.DebugListener;
+import nl.aurorion.blockregen.listener.MaterialCacheListener;
 import nl.aurorion.blockregen.listener.PhysicsListener;
 import nl.aurorion.blockregen.listener.PlayerListener;
 import nl.aurorion.blockregen.listener.RegenerationListener;
+import nl.aurorion.blockregen.listener.WorldListener;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
 import nl.aurorion.blockregen.material.MaterialManager;
 import nl.aurorion.blockregen.material.MaterialProvider;
@@ -22,6 +25,7 @@ import nl.aurorion.blockregen.particle.ParticleManager;
 import nl.aurorion.blockregen.particle.impl.*;
 import nl.aurorion.blockregen.preset.PresetManager;
 import nl.aurorion.blockregen.preset.condition.DefaultConditions;
+import nl.aurorion.blockregen.regeneration.ProcessAdapterFactory;
 import nl.aurorion.blockregen.regeneration.RegenerationEventHandler;
 import nl.aurorion.blockregen.regeneration.RegenerationEventHandlerImpl;
 import nl.aurorion.blockregen.regeneration.RegenerationManager;
@@ -172,6 +176,7 @@ public class BlockRegenPluginImpl extends JavaPlugin implements Listener, BlockR
                 .registerTypeHierarchyAdapter(NodeData.class, new SubclassAdapter<>(new GsonBuilder().setPrettyPrinting().create()))
                 .registerTypeHierarchyAdapter(BlockRegenMaterial.class, new SubclassAdapter<>(innerGsonBuilder.setPrettyPrinting().create()))
                 .registerTypeAdapter(NodeData.class, new NodeDataInstanceCreator(versionManager.getNodeProvider()))
+                .registerTypeAdapterFactory(new ProcessAdapterFactory())
                 .setPrettyPrinting();
 
         gsonHelper = new GsonHelper(gsonBuilder);
@@ -250,6 +255,8 @@ public class BlockRegenPluginImpl extends JavaPlugin implements Listener, BlockR
 
         physicsListener.load();
 
+        regenerationManager.getScheduler().load();
+
         regionManager.reload();
 
         if (getConfig().getBoolean("Auto-Save.Enabled", false)) {
@@ -278,9 +285,15 @@ public class BlockRegenPluginImpl extends JavaPlugin implements Listener, BlockR
             regenerationManager.getAutoSaveTask().stop();
         }
 
+        regenerationManager.getScheduler().stop();
+
         if (finishedLoading) {
+            // Apply the queued block changes, so the reverted and saved state matches the world.
+            regenerationManager.getMutationQueue().drain();
+
             regenerationManager.revertAll();
             regenerationManager.save(true);
+            regenerationManager.closeStorage();
 
             regionManager.save();
         }
@@ -304,6 +317,9 @@ public class BlockRegenPluginImpl extends JavaPlugin implements Listener, BlockR
         }
 
         pluginManager.registerEvents(new PlayerListener(this), this);
+        pluginManager.registerEvents(new ChunkListener(this), this);
+        pluginManager.registerEvents(new WorldListener(this), this);
+        pluginManager.registerEvents(new MaterialCacheListener(this), this);
         versionManager.registerVersionedListeners();
 
         registerDebugListener();
@@ -6,6 +6,7 @@ import nl.aurorion.blockregen.BlockRegenPlugin;
 import nl.aurorion.blockregen.Message;
 import nl.aurorion.blockregen.event.struct.PresetEvent;
 import nl.aurorion.blockregen.preset.BlockPreset;
+import nl.aurorion.blockregen.regeneration.RegenerationScheduler;
 import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
 import nl.aurorion.blockregen.region.selection.RegionSelection;
 import nl.aurorion.blockregen.region.struct.RegenerationArea;
@@ -24,6 +25,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -593,17 +595,27 @@ public class Commands implements CommandExecutor {
                     }
                 }
 
+                String presetName = preset == null ? null : preset.getName();
+                String regionName = region == null ? null : region.getName();
+                String targetWorld = worldName;
+
+                // By name, packed processes don't have the preset converted.
+                Predicate<RegenerationProcess> filter = process -> (presetName == null || presetName.equals(process.getPresetName())) &&
+                        (regionName == null || regionName.equalsIgnoreCase(process.getRegionName())) &&
+                        (targetWorld == null || targetWorld.equalsIgnoreCase(process.getWorldName()));
+
                 Set<RegenerationProcess> toRegen = new HashSet<>();
 
                 for (RegenerationProcess process : plugin.getRegenerationManager().getCache()) {
-                    if ((preset == null || preset.equals(process.getPreset())) &&
-                            (region == null || region.getName().equalsIgnoreCase(process.getRegionName())) &&
-                            (worldName == null || worldName.equalsIgnoreCase(process.getWorldName()))) {
+                    if (filter.test(process)) {
                         toRegen.add(process);
                     }
                 }
 
-                Bukkit.getScheduler().runTask(plugin, () -> toRegen.forEach(RegenerationProcess::regenerate));
+                // Start the ones packed in unloaded chunks first.
+                toRegen.addAll(plugin.getRegenerationManager().unpack(filter));
+
+                toRegen.forEach(plugin.getRegenerationManager()::queueRegeneration);
 
                 Message.REGENERATED_PROCESSES.mapAndSend(sender, str -> str.replace("%count%", String.valueOf(toRegen.size())));
                 break;
@@ -628,6 +640,24 @@ public class Commands implements CommandExecutor {
 
                 Collection<RegenerationProcess> processes = plugin.getRegenerationManager().getCache();
 
+                RegenerationScheduler scheduler = plugin.getRegenerationManager().getScheduler();
+                int backlogSize = scheduler.getBacklogSize();
+                if (backlogSize > 0) {
+                    stats.append("&7Backlog&8: &f").append(backlogSize).append(" &7(oldest &f")
+                            .append(scheduler.getBacklogAge() / 1000).append("s&7)\n");
+                }
+
+                if (scheduler.isDeferUnloadedChunks() && plugin.getRegenerationManager().getDeferredCount() > 0) {
+                    stats.append("&7Deferred in unloaded chunks&8: &f").append(plugin.getRegenerationManager().getOverdueCount())
+                            .append(" &7(deferred &f").append(plugin.getRegenerationManager().getDeferredCount())
+                            .append("&7, caught up &f").append(plugin.getRegenerationManager().getCaughtUpCount()).append("&7)\n");
+                }
+
+                int packedCount = plugin.getRegenerationManager().getPackedCount();
+                if (packedCount > 0) {
+                    stats.append("&7Packed in unloaded chunks&8: &f").append(packedCount).append("\n");
+                }
+
                 if (processes.isEmpty()) {
                     stats.append("&7None to show.");
                     sender.sendMessage(Colors.color(stats.toString()));
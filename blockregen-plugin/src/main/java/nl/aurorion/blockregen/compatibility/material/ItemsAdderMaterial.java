@@ -2,11 +2,13 @@ package nl.aurorion.blockregen.compatibility.material;
 
 import com.cryptomorin.xseries.XMaterial;
 import dev.lone.itemsadder.api.CustomBlock;
+import lombok.EqualsAndHashCode;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
 import org.bukkit.block.Block;
 
 @Log
+@EqualsAndHashCode
 public class ItemsAdderMaterial implements BlockRegenMaterial {
 
     private final String id;
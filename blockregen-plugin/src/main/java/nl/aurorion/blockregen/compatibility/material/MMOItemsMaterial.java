@@ -1,6 +1,7 @@
 package nl.aurorion.blockregen.compatibility.material;
 
 import com.cryptomorin.xseries.XMaterial;
+import lombok.EqualsAndHashCode;
 import lombok.extern.java.Log;
 import net.Indyuce.mmoitems.MMOItems;
 import net.Indyuce.mmoitems.api.block.CustomBlock;
@@ -11,6 +12,7 @@ import org.bukkit.block.Block;
 import java.util.Optional;
 
 @Log
+@EqualsAndHashCode
 public class MMOItemsMaterial implements BlockRegenMaterial {
 
     private final int id;
@@ -4,6 +4,7 @@ import com.cryptomorin.xseries.XMaterial;
 import com.nexomc.nexo.api.NexoBlocks;
 import com.nexomc.nexo.mechanics.Mechanic;
 import com.nexomc.nexo.mechanics.custom_block.CustomBlockMechanic;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
 import org.bukkit.block.Block;
@@ -12,6 +13,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 
+@EqualsAndHashCode
 public class NexoMaterial implements BlockRegenMaterial {
 
     @Getter
@@ -3,6 +3,7 @@ package nl.aurorion.blockregen.compatibility.material;
 import com.cryptomorin.xseries.XMaterial;
 import io.th0rgal.oraxen.api.OraxenBlocks;
 import io.th0rgal.oraxen.mechanics.Mechanic;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import nl.aurorion.blockregen.BlockRegenPlugin;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
@@ -12,6 +13,7 @@ import org.bukkit.block.data.BlockData;
 import java.util.Objects;
 
 // Check using the Oraxen API whether the destroyed block matches.
+@EqualsAndHashCode
 public class OraxenMaterial implements BlockRegenMaterial {
 
     @Getter
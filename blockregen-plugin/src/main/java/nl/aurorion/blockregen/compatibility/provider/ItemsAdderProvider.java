@@ -1,5 +1,6 @@
 package nl.aurorion.blockregen.compatibility.provider;
 
+import com.cryptomorin.xseries.XMaterial;
 import dev.lone.itemsadder.api.CustomBlock;
 import dev.lone.itemsadder.api.CustomStack;
 import lombok.extern.java.Log;
@@ -18,11 +19,25 @@ import org.jetbrains.annotations.NotNull;
 import org.jspecify.annotations.Nullable;
 
 import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Log
 public class ItemsAdderProvider extends CompatibilityProvider implements ItemProvider, MaterialProvider {
+
+    // Base blocks of the custom block types (real, real note, real transparent, real wire, tile, fire).
+    private static final Set<XMaterial> BLOCK_TYPES = Collections.unmodifiableSet(EnumSet.of(
+            XMaterial.NOTE_BLOCK,
+            XMaterial.BROWN_MUSHROOM_BLOCK,
+            XMaterial.RED_MUSHROOM_BLOCK,
+            XMaterial.MUSHROOM_STEM,
+            XMaterial.TRIPWIRE,
+            XMaterial.CHORUS_PLANT,
+            XMaterial.SPAWNER,
+            XMaterial.FIRE));
     public ItemsAdderProvider(BlockRegenPlugin plugin) {
         super(plugin, "ia");
         setFeatures("materials", "drops", "conditions");
@@ -62,6 +77,11 @@ public class ItemsAdderProvider extends CompatibilityProvider implements ItemPro
         return customBlock == null ? null : new ItemsAdderMaterial(customBlock.getNamespacedID());
     }
 
+    @Override
+    public @Nullable Set<XMaterial> getBlockTypes() {
+        return BLOCK_TYPES;
+    }
+
     @Override
     public ItemStack createItem(@NotNull String id, @NotNull Function<String, String> parser, int amount) {
         CustomStack builder = CustomStack.getInstance(id);
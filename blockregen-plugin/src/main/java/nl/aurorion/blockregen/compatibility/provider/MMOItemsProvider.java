@@ -1,5 +1,6 @@
 package nl.aurorion.blockregen.compatibility.provider;
 
+import com.cryptomorin.xseries.XMaterial;
 import io.lumine.mythic.lib.api.item.NBTItem;
 import net.Indyuce.mmoitems.MMOItems;
 import net.Indyuce.mmoitems.api.Type;
@@ -24,7 +25,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jspecify.annotations.NonNull;
 
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -32,6 +36,12 @@ import java.util.stream.Collectors;
 
 public class MMOItemsProvider extends CompatibilityProvider implements ItemProvider, MaterialProvider {
 
+    // Custom blocks are mushroom block states.
+    private static final Set<XMaterial> BLOCK_TYPES = Collections.unmodifiableSet(EnumSet.of(
+            XMaterial.BROWN_MUSHROOM_BLOCK,
+            XMaterial.RED_MUSHROOM_BLOCK,
+            XMaterial.MUSHROOM_STEM));
+
     private static final Pattern ITEM_PATTERN = Pattern.compile("(\\S+):(\\S+)");
 
     public MMOItemsProvider(BlockRegenPlugin plugin) {
@@ -107,6 +117,11 @@ public class MMOItemsProvider extends CompatibilityProvider implements ItemProvi
 
     }
 
+    @Override
+    public @Nullable Set<XMaterial> getBlockTypes() {
+        return BLOCK_TYPES;
+    }
+
     @Override
     public @NotNull Class<?> getClazz() {
         return MMOItemsMaterial.class;
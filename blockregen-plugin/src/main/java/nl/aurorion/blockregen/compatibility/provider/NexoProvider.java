@@ -1,5 +1,6 @@
 package nl.aurorion.blockregen.compatibility.provider;
 
+import com.cryptomorin.xseries.XMaterial;
 import com.nexomc.nexo.api.NexoBlocks;
 import com.nexomc.nexo.api.NexoItems;
 import com.nexomc.nexo.mechanics.custom_block.CustomBlockMechanic;
@@ -16,9 +17,18 @@ import org.jetbrains.annotations.NotNull;
 import org.jspecify.annotations.Nullable;
 
 import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class NexoProvider extends CompatibilityProvider implements MaterialProvider {
 
+    // Note block, string block and chorus block mechanics.
+    private static final Set<XMaterial> BLOCK_TYPES = Collections.unmodifiableSet(EnumSet.of(
+            XMaterial.NOTE_BLOCK,
+            XMaterial.TRIPWIRE,
+            XMaterial.CHORUS_PLANT));
+
     public NexoProvider(BlockRegenPlugin plugin) {
         super(plugin, "nexo");
         setFeatures("materials", "conditions");
@@ -66,6 +76,11 @@ public class NexoProvider extends CompatibilityProvider implements MaterialProvi
         return new NexoMaterial(customBlockMechanic.getItemID());
     }
 
+    @Override
+    public @Nullable Set<XMaterial> getBlockTypes() {
+        return BLOCK_TYPES;
+    }
+
     @Override
     public @NotNull Class<?> getClazz() {
         return NexoMaterial.class;
@@ -1,5 +1,6 @@
 package nl.aurorion.blockregen.compatibility.provider;
 
+import com.cryptomorin.xseries.XMaterial;
 import io.th0rgal.oraxen.api.OraxenBlocks;
 import io.th0rgal.oraxen.api.OraxenItems;
 import io.th0rgal.oraxen.items.ItemBuilder;
@@ -18,11 +19,20 @@ import org.jetbrains.annotations.NotNull;
 import org.jspecify.annotations.Nullable;
 
 import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class OraxenProvider extends CompatibilityProvider implements ItemProvider, MaterialProvider {
 
+    // Note block, string block and chorus block mechanics.
+    private static final Set<XMaterial> BLOCK_TYPES = Collections.unmodifiableSet(EnumSet.of(
+            XMaterial.NOTE_BLOCK,
+            XMaterial.TRIPWIRE,
+            XMaterial.CHORUS_PLANT));
+
     public OraxenProvider(BlockRegenPlugin plugin) {
         super(plugin, "oraxen");
         setFeatures("materials", "drops", "conditions");
@@ -66,6 +76,11 @@ public class OraxenProvider extends CompatibilityProvider implements ItemProvide
         return new OraxenMaterial(blockMechanic.getItemID());
     }
 
+    @Override
+    public @Nullable Set<XMaterial> getBlockTypes() {
+        return BLOCK_TYPES;
+    }
+
     @Override
     public @NotNull Class<?> getClazz() {
         return OraxenMaterial.class;
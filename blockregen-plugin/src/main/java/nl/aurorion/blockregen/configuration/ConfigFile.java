@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.util.AtomicFiles;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -14,6 +15,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -38,6 +40,11 @@ public class ConfigFile {
     @Setter
     private boolean forceEscapeTargetMaterial = false;
 
+    // Previous versions to keep when saving.
+    @Getter
+    @Setter
+    private int backups = 0;
+
     public ConfigFile(BlockRegenPlugin plugin, String path) {
         this.path = path.contains(".yml") ? path : path + ".yml";
         this.plugin = plugin;
@@ -57,7 +64,8 @@ public class ConfigFile {
     public void load() {
         this.file = new File(plugin.getDataFolder(), this.path);
 
-        if (!file.exists()) {
+        // Missing after a crash mid-save, it's loaded from the backups below.
+        if (!file.exists() && AtomicFiles.generations(file.toPath(), backups).isEmpty()) {
             try {
                 plugin.saveResource(this.path, false);
             } catch (IllegalArgumentException e) {
@@ -73,68 +81,82 @@ public class ConfigFile {
             log.info("Created file " + this.path);
         }
 
-        // Force escape target-material when a glob pattern at the front is used avoiding YAML aliases.
-        // target-material: *_ORE -> target-material: "*_ORE"
-
-        try {
-            BufferedReader reader = Files.newBufferedReader(file.toPath(), Charsets.UTF_8);
-            StringBuilder builder = new StringBuilder();
-
-            String line;
-            try {
-                // The same as FileConfiguration#load with escapes added.
-                while ((line = reader.readLine()) != null) {
-                    if (!this.forceEscapeTargetMaterial) {
-                        builder.append(line);
-                        builder.append('\n');
-                        continue;
-                    }
-
-                    Matcher matcher = TARGET_MATERIAL_PATTERN.matcher(line);
-
-                    if (!matcher.matches()) {
-                        builder.append(line);
-                        builder.append('\n');
-                        continue;
-                    }
-
-                    String value = matcher.group(1).trim();
-
-                    if (value.startsWith("*") && !value.startsWith("\"") && !value.startsWith("'")) {
-                        String escapedValue = "\"" + value + "\"";
-                        String escapedLine = line.replaceFirst(Pattern.quote(value), escapedValue);
-                        builder.append(escapedLine);
-                    } else {
-                        builder.append(line);
-                    }
-                    builder.append('\n');
-                }
-            } finally {
-                reader.close();
-            }
+        this.fileConfiguration = null;
 
-            YamlConfiguration config = new YamlConfiguration();
+        // Fall back to the backups when the file is broken.
+        for (Path generation : AtomicFiles.generations(file.toPath(), backups)) {
             try {
-                config.loadFromString(builder.toString());
+                YamlConfiguration config = new YamlConfiguration();
+                config.loadFromString(read(generation));
                 this.fileConfiguration = config;
+
+                if (!generation.equals(file.toPath())) {
+                    log.warning("Loaded " + this.path + " from backup " + generation.getFileName() + ".");
+                }
+                break;
             } catch (InvalidConfigurationException e) {
-                log.log(Level.SEVERE, "Invalid YAML configuration in " + this.path + ": " + e.getMessage(), e);
-                this.fileConfiguration = new YamlConfiguration();
+                log.log(Level.SEVERE, "Invalid YAML configuration in " + generation.getFileName() + ": " + e.getMessage(), e);
+            } catch (IOException e) {
+                log.log(Level.SEVERE, "Could not read file " + generation.getFileName() + ": " + e.getMessage(), e);
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Error processing file " + generation.getFileName() + ": " + e.getMessage(), e);
             }
-        } catch (IOException e) {
-            log.log(Level.SEVERE, "Could not read file " + this.path + ": " + e.getMessage(), e);
-            this.fileConfiguration = new YamlConfiguration();
-        } catch (Exception e) {
-            log.log(Level.SEVERE, "Error processing file " + this.path + ": " + e.getMessage(), e);
+        }
+
+        if (this.fileConfiguration == null) {
             this.fileConfiguration = new YamlConfiguration();
         }
 
         log.info("Loaded file " + this.path);
     }
 
+    // Force escape target-material when a glob pattern at the front is used avoiding YAML aliases.
+    // target-material: *_ORE -> target-material: "*_ORE"
+    private String read(Path path) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(path, Charsets.UTF_8);
+        StringBuilder builder = new StringBuilder();
+
+        String line;
+        try {
+            // The same as FileConfiguration#load with escapes added.
+            while ((line = reader.readLine()) != null) {
+                if (!this.forceEscapeTargetMaterial) {
+                    builder.append(line);
+                    builder.append('\n');
+                    continue;
+                }
+
+                Matcher matcher = TARGET_MATERIAL_PATTERN.matcher(line);
+
+                if (!matcher.matches()) {
+                    builder.append(line);
+                    builder.append('\n');
+                    continue;
+                }
+
+                String value = matcher.group(1).trim();
+
+                if (value.startsWith("*") && !value.startsWith("\"") && !value.startsWith("'")) {
+                    String escapedValue = "\"" + value + "\"";
+                    String escapedLine = line.replaceFirst(Pattern.quote(value), escapedValue);
+                    builder.append(escapedLine);
+                } else {
+                    builder.append(line);
+                }
+                builder.append('\n');
+            }
+        } finally {
+            reader.close();
+        }
+
+        return builder.toString();
+    }
+
     public void save() {
+        // Write a temporary file and swap it in, a crash mid-write shouldn't leave a broken file behind.
         try {
-            fileConfiguration.save(file);
+            String contents = fileConfiguration.saveToString();
+            AtomicFiles.write(file.toPath(), backups, path -> Files.write(path, contents.getBytes(Charsets.UTF_8)));
         } catch (IOException e) {
             log.severe("Could not save " + this.path);
         }
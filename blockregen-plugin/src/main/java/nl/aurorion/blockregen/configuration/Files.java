@@ -29,6 +29,8 @@ public class Files {
         this.settings.load();
         this.messages.load();
         this.blockList.load();
+
+        this.regions.setBackups(Math.max(0, this.settings.getFileConfiguration().getInt("Storage.Backups", 3)));
         this.regions.load();
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package nl.aurorion.blockregen.listener;
+
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+public class ChunkListener implements Listener {
+
+    private final BlockRegenPlugin plugin;
+
+    public ChunkListener(BlockRegenPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    // Apply regenerations that were deferred while the chunk was unloaded.
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        // Processes kept in the chunk itself.
+        plugin.getRegenerationManager().loadChunk(event.getChunk());
+
+        if (plugin.getRegenerationManager().getOverdueCount() == 0) {
+            return;
+        }
+
+        Chunk chunk = event.getChunk();
+        plugin.getRegenerationManager().catchUp(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    // Store the processes in the chunk before it's written.
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        plugin.getRegenerationManager().unloadChunk(event.getChunk());
+    }
+}
@@ -3,7 +3,6 @@ package nl.aurorion.blockregen.listener;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.BlockRegenPlugin;
 import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
-import nl.aurorion.blockregen.region.struct.RegenerationArea;
 import nl.aurorion.blockregen.util.Blocks;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -42,13 +41,10 @@ public class PhysicsListener implements Listener {
         Block block = event.getBlock();
         World world = block.getWorld();
 
-        boolean useRegions = this.useRegions;
-        RegenerationArea region = plugin.getRegionManager().getArea(block);
-
-        boolean isInWorld = this.worldsEnabled.contains(world.getName());
-        boolean isInRegion = region != null;
-
-        boolean isInZone = useRegions ? isInRegion : isInWorld;
+        // Mostly answered from the section summary of the region manager.
+        boolean isInZone = useRegions ?
+                plugin.getRegionManager().getArea(world, block.getX(), block.getY(), block.getZ()) != null :
+                this.worldsEnabled.contains(world.getName());
 
         if (!isInZone) {
             return;
@@ -0,0 +1,22 @@
+package nl.aurorion.blockregen.listener;
+
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+
+public class WorldListener implements Listener {
+
+    private final BlockRegenPlugin plugin;
+
+    public WorldListener(BlockRegenPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    // Load the stored processes of worlds loaded after the plugin.
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        plugin.getRegenerationManager().loadWorld(event.getWorld().getName());
+    }
+}
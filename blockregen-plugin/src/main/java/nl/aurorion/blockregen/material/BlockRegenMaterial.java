@@ -11,6 +11,13 @@ public interface BlockRegenMaterial {
      */
     boolean check(Block block);
 
+    /**
+     * Return true if the block matches this block, with the type of the block already read.
+     */
+    default boolean check(Block block, XMaterial type) {
+        return check(block);
+    }
+
     /**
      * Set the type of the block and apply data.
      */
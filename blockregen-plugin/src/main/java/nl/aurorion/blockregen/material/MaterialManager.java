@@ -9,8 +9,11 @@ import nl.aurorion.blockregen.ParseException;
 import nl.aurorion.blockregen.material.builtin.MinecraftMaterial;
 import nl.aurorion.blockregen.preset.material.PlacementMaterial;
 import nl.aurorion.blockregen.preset.material.TargetMaterial;
+import nl.aurorion.blockregen.util.BlockPositions;
+import nl.aurorion.blockregen.util.LongHashMap;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -32,6 +35,29 @@ public class MaterialManager {
 
     private final Map<String, BlockRegenMaterial> cachedMaterialInputs = new HashMap<>();
 
+    // Drop the cached materials of a world once there's this many.
+    private static final int MAX_RESOLVED_BLOCKS = 16384;
+
+    // Material loaded for a block along with the data it had.
+    private static class ResolvedBlock {
+        private final BlockData data;
+        private final Pair<String, BlockRegenMaterial> result;
+
+        private ResolvedBlock(BlockData data, Pair<String, BlockRegenMaterial> result) {
+            this.data = data;
+            this.result = result;
+        }
+    }
+
+    // Materials loaded by providers with block types, by world and position.
+    private final Map<String, LongHashMap<ResolvedBlock>> resolvedBlocks = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private volatile Map.Entry<String, MaterialProvider>[] loadOrder = new Map.Entry[0];
+
+    // Whether any of the providers has block types.
+    private volatile boolean typedProviders = false;
+
     public MaterialManager(BlockRegenPlugin plugin) {
         this.plugin = plugin;
     }
@@ -61,6 +87,7 @@ public class MaterialManager {
         }
 
         registeredProviders.put(prefix, provider);
+        updateLoadOrder();
         log.fine(String.format("Registered material provider with prefix %s", prefix));
     }
 
@@ -69,51 +96,150 @@ public class MaterialManager {
         return this.registeredProviders.get((prefix == null ? null : prefix.toLowerCase()));
     }
 
+    // Newest provider first, rebuilt on register.
     @SuppressWarnings("unchecked")
-    private Iterator<Map.Entry<String, MaterialProvider>> reversedEntryIterator() {
-        Map.Entry<String, MaterialProvider>[] array = (Map.Entry<String, MaterialProvider>[]) this.registeredProviders.entrySet().toArray(new Map.Entry[0]);
-
-        class ReversedEntryIterator implements Iterator<Map.Entry<String, MaterialProvider>> {
+    private void updateLoadOrder() {
+        Map.Entry<String, MaterialProvider>[] entries = this.registeredProviders.entrySet().toArray(new Map.Entry[0]);
+        Map.Entry<String, MaterialProvider>[] reversed = new Map.Entry[entries.length];
+
+        boolean typed = false;
+        for (int i = 0; i < entries.length; i++) {
+            Map.Entry<String, MaterialProvider> entry = entries[entries.length - 1 - i];
+            reversed[i] = new AbstractMap.SimpleImmutableEntry<>(entry);
+            typed |= entry.getValue().getBlockTypes() != null;
+        }
 
-            private int currentIndex = array.length - 1;
+        this.loadOrder = reversed;
+        this.typedProviders = typed;
+        invalidateAll();
+    }
 
-            @Override
-            public boolean hasNext() {
-                return currentIndex >= 0;
+    /**
+     * Load the material of a block with the registered providers, newest first.
+     * <p>
+     * Providers limited to some block types are only asked about blocks of those types, their results are cached by
+     * location until the block changes.
+     */
+    @Nullable
+    public Pair<String, BlockRegenMaterial> getMaterial(@NotNull Block block) {
+        Map.Entry<String, MaterialProvider>[] providers = this.loadOrder;
+
+        // Resolve the type once, only when there's a provider to filter.
+        XMaterial type = typedProviders ? getType(block) : null;
+        boolean cacheable = false;
+
+        if (type != null) {
+            for (Map.Entry<String, MaterialProvider> entry : providers) {
+                Set<XMaterial> types = entry.getValue().getBlockTypes();
+                if (types != null && types.contains(type)) {
+                    cacheable = true;
+                    break;
+                }
             }
 
-            @Override
-            public Map.Entry<String, MaterialProvider> next() {
-                if (currentIndex < 0) {
-                    throw new NoSuchElementException();
+            if (cacheable) {
+                Pair<String, BlockRegenMaterial> cached = getCached(block);
+                if (cached != null) {
+                    return cached;
                 }
-
-                return array[this.currentIndex--];
             }
         }
 
-        return new ReversedEntryIterator();
-    }
+        for (Map.Entry<String, MaterialProvider> entry : providers) {
+            MaterialProvider provider = entry.getValue();
+            Set<XMaterial> types = provider.getBlockTypes();
 
-    @Nullable
-    public Pair<String, BlockRegenMaterial> getMaterial(@NotNull Block block) {
-        Iterator<Map.Entry<String, MaterialProvider>> it = reversedEntryIterator();
-        while (it.hasNext()) {
-            Map.Entry<String, MaterialProvider> entry = it.next();
+            if (types != null && type != null && !types.contains(type)) {
+                continue;
+            }
 
-            BlockRegenMaterial material = entry.getValue().load(block);
+            BlockRegenMaterial material = provider.load(block);
 
             if (material == null) {
                 continue;
             }
 
             log.fine(() -> "Loaded material '" + material + "' with loader '" + entry.getKey() + "'");
-            return new Pair<>(entry.getKey(), material);
+            Pair<String, BlockRegenMaterial> result = new Pair<>(entry.getKey(), material);
+
+            // Vanilla materials depend on the block state, don't keep them.
+            if (cacheable && types != null) {
+                cache(block, result);
+            }
+            return result;
         }
 
         return null;
     }
 
+    @Nullable
+    private XMaterial getType(@NotNull Block block) {
+        try {
+            return plugin.getVersionManager().getMethods().getType(block);
+        } catch (IllegalArgumentException e) {
+            // Unknown to XSeries, ask every provider.
+            return null;
+        }
+    }
+
+    @Nullable
+    private Pair<String, BlockRegenMaterial> getCached(@NotNull Block block) {
+        synchronized (resolvedBlocks) {
+            LongHashMap<ResolvedBlock> world = resolvedBlocks.get(block.getWorld().getName());
+            if (world == null) {
+                return null;
+            }
+
+            long key = BlockPositions.pack(block);
+            ResolvedBlock resolved = world.get(key);
+            if (resolved == null) {
+                return null;
+            }
+
+            // Changed without us noticing.
+            if (!resolved.data.equals(block.getBlockData())) {
+                world.remove(key);
+                return null;
+            }
+            return resolved.result;
+        }
+    }
+
+    // Only reached with a provider for custom blocks loaded, all of which require block data (1.13+).
+    private void cache(@NotNull Block block, @NotNull Pair<String, BlockRegenMaterial> result) {
+        synchronized (resolvedBlocks) {
+            LongHashMap<ResolvedBlock> world = resolvedBlocks.computeIfAbsent(block.getWorld().getName(), k -> new LongHashMap<>());
+            if (world.size() >= MAX_RESOLVED_BLOCKS) {
+                world.clear();
+            }
+            world.put(BlockPositions.pack(block), new ResolvedBlock(block.getBlockData(), result));
+        }
+    }
+
+    /**
+     * Forget the material cached for the block. Call when the block changes.
+     */
+    public void invalidate(@NotNull Block block) {
+        synchronized (resolvedBlocks) {
+            LongHashMap<ResolvedBlock> world = resolvedBlocks.get(block.getWorld().getName());
+            if (world != null) {
+                world.remove(BlockPositions.pack(block));
+            }
+        }
+    }
+
+    public void invalidate(@NotNull String worldName) {
+        synchronized (resolvedBlocks) {
+            resolvedBlocks.remove(worldName);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (resolvedBlocks) {
+            resolvedBlocks.clear();
+        }
+    }
+
     /**
      * @throws ParseException If the parsing fails.
      */
@@ -286,7 +412,7 @@ public class MaterialManager {
                 if (result.getSecond() == null) {
                     restMaterials.add(result.getFirst());
                 } else {
-                    valuedMaterials.put(result.getFirst(), result.getSecond());
+                    valuedMaterials.merge(result.getFirst(), result.getSecond(), Double::sum);
                 }
             } else {
                 // Prefixed
@@ -298,7 +424,7 @@ public class MaterialManager {
                 if (result.getSecond() == null) {
                     restMaterials.add(result.getFirst());
                 } else {
-                    valuedMaterials.put(result.getFirst(), result.getSecond());
+                    valuedMaterials.merge(result.getFirst(), result.getSecond(), Double::sum);
                     log.fine(() -> String.format("Added material %s at chance %.2f%%", result.getFirst(), result.getSecond()));
                 }
             }
@@ -312,15 +438,15 @@ public class MaterialManager {
         if (rest > 0.0) {
             // Fill the rest with AIR if no material was provided.
             if (restMaterials.isEmpty()) {
-                valuedMaterials.put(new MinecraftMaterial(plugin, XMaterial.AIR, null), rest);
+                valuedMaterials.merge(MaterialPool.intern(new MinecraftMaterial(plugin, XMaterial.AIR, null)), rest, Double::sum);
                 log.fine(() -> "Only a single material with chance provided. Filling the rest with AIR.");
             } else if (restMaterials.size() == 1) {
-                valuedMaterials.put(restMaterials.get(0), rest);
+                valuedMaterials.merge(restMaterials.get(0), rest, Double::sum);
                 log.fine(() -> String.format("Added material %s at chance %.2f%%", restMaterials.get(0), rest));
             } else {
                 // Split the rest of the chance between the materials.
                 double chance = rest / restMaterials.size();
-                restMaterials.forEach(mat -> valuedMaterials.put(mat, chance));
+                restMaterials.forEach(mat -> valuedMaterials.merge(mat, chance, Double::sum));
             }
         }
 
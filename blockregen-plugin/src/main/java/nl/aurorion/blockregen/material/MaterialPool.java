@@ -0,0 +1,33 @@
+package nl.aurorion.blockregen.material;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import lombok.experimental.UtilityClass;
+import nl.aurorion.blockregen.version.api.NodeData;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Canonical instances of equal materials and node data, so processes of the same block state share them.
+ * <p>
+ * Interned values are held weakly and must not be modified after interning.
+ */
+@UtilityClass
+public class MaterialPool {
+
+    private static final Interner<NodeData> NODE_DATA = Interners.newWeakInterner();
+
+    private static final Interner<BlockRegenMaterial> MATERIALS = Interners.newWeakInterner();
+
+    // Equal values are of the same class.
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T extends NodeData> T intern(@Nullable T nodeData) {
+        return nodeData == null ? null : (T) NODE_DATA.intern(nodeData);
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T extends BlockRegenMaterial> T intern(@Nullable T material) {
+        return material == null ? null : (T) MATERIALS.intern(material);
+    }
+}
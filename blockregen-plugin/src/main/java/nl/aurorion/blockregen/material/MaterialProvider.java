@@ -1,11 +1,14 @@
 package nl.aurorion.blockregen.material;
 
+import com.cryptomorin.xseries.XMaterial;
 import com.google.gson.InstanceCreator;
 import nl.aurorion.blockregen.ParseException;
 import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Set;
+
 public interface MaterialProvider extends InstanceCreator<BlockRegenMaterial> {
 
     /**
@@ -23,6 +26,17 @@ public interface MaterialProvider extends InstanceCreator<BlockRegenMaterial> {
     @Nullable
     BlockRegenMaterial load(@NotNull Block block);
 
+    /**
+     * Block types the materials of this provider are placed as. Blocks of other types are never passed to {@link
+     * #load(Block)}, materials loaded for these types are cached by location.
+     *
+     * @return Types of the blocks or null if the provider can load any block.
+     */
+    @Nullable
+    default Set<XMaterial> getBlockTypes() {
+        return null;
+    }
+
     /**
      * @return True if the material syntax contains colons.
      */
@@ -1,6 +1,7 @@
 package nl.aurorion.blockregen.material.builtin;
 
 import com.cryptomorin.xseries.XMaterial;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import nl.aurorion.blockregen.BlockRegenPlugin;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
@@ -9,6 +10,8 @@ import nl.aurorion.blockregen.version.api.NodeData;
 import org.bukkit.block.Block;
 import org.jetbrains.annotations.Nullable;
 
+// Equal by the material and node data.
+@EqualsAndHashCode
 public class MinecraftMaterial implements BlockRegenMaterial {
 
     private final transient BlockRegenPlugin plugin;
@@ -32,8 +35,12 @@ public class MinecraftMaterial implements BlockRegenMaterial {
 
     @Override
     public boolean check(Block block) {
-        XMaterial xMaterial = this.plugin.getBlockType(block);
-        return xMaterial == this.material && (this.nodeData == null || this.nodeData.matches(block));
+        return check(block, this.plugin.getBlockType(block));
+    }
+
+    @Override
+    public boolean check(Block block, XMaterial type) {
+        return type == this.material && (this.nodeData == null || this.nodeData.matches(block));
     }
 
     @Override
@@ -45,6 +52,10 @@ public class MinecraftMaterial implements BlockRegenMaterial {
 
     @Override
     public void setType(Block block) {
+        // Skip the redundant write when clearing an already empty block.
+        if (this.material == XMaterial.AIR && block.isEmpty()) {
+            return;
+        }
         plugin.getVersionManager().getMethods().setType(block, this.material);
     }
 
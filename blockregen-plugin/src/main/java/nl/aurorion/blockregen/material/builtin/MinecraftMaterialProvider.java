@@ -5,6 +5,7 @@ import lombok.extern.java.Log;
 import nl.aurorion.blockregen.BlockRegenPlugin;
 import nl.aurorion.blockregen.ParseException;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import nl.aurorion.blockregen.material.MaterialPool;
 import nl.aurorion.blockregen.material.MaterialProvider;
 import nl.aurorion.blockregen.util.BukkitVersions;
 import nl.aurorion.blockregen.util.Locations;
@@ -45,9 +46,9 @@ public class MinecraftMaterialProvider implements MaterialProvider {
 
         if (loadData) {
             NodeData nodeData = plugin.getVersionManager().getNodeDataParser().parse(String.format("minecraft:%s", input));
-            return new MinecraftMaterial(plugin, xMaterial, nodeData);
+            return MaterialPool.intern(new MinecraftMaterial(plugin, xMaterial, MaterialPool.intern(nodeData)));
         } else {
-            return new MinecraftMaterial(plugin, xMaterial);
+            return MaterialPool.intern(new MinecraftMaterial(plugin, xMaterial));
         }
     }
 
@@ -60,7 +61,8 @@ public class MinecraftMaterialProvider implements MaterialProvider {
         NodeData nodeData = plugin.getVersionManager().createNodeData();
         nodeData.load(block);
 
-        return new MinecraftMaterial(plugin, material, nodeData);
+        // Blocks in the same state share the instances.
+        return MaterialPool.intern(new MinecraftMaterial(plugin, material, MaterialPool.intern(nodeData)));
     }
 
     @Override
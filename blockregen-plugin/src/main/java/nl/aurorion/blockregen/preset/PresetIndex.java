@@ -0,0 +1,138 @@
+package nl.aurorion.blockregen.preset;
+
+import com.cryptomorin.xseries.XMaterial;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Presets that could match a block, by the base type of the block. Immutable.
+ * <p>
+ * Vanilla target materials are indexed by their material, materials of other plugins by the base block type they're
+ * placed as. Presets with a material whose base type can't be resolved are candidates for every type. Candidates keep
+ * the declaration order of the presets.
+ */
+@Log
+public class PresetIndex {
+
+    public static final PresetIndex EMPTY = new PresetIndex(Collections.emptyMap(), Collections.emptyList());
+
+    private final Map<XMaterial, List<BlockPreset>> byType;
+
+    // Candidates for types with no indexed presets.
+    private final List<BlockPreset> unindexed;
+
+    private PresetIndex(Map<XMaterial, List<BlockPreset>> byType, List<BlockPreset> unindexed) {
+        this.byType = byType;
+        this.unindexed = unindexed;
+    }
+
+    @NotNull
+    public static PresetIndex build(@NotNull Collection<BlockPreset> presets) {
+        // Base types of each preset, null when any of them is unknown.
+        List<BlockPreset> ordered = new ArrayList<>(presets);
+        List<Set<XMaterial>> types = new ArrayList<>(ordered.size());
+        Set<XMaterial> allTypes = EnumSet.noneOf(XMaterial.class);
+        List<BlockPreset> unindexed = new ArrayList<>();
+
+        for (BlockPreset preset : ordered) {
+            Set<XMaterial> presetTypes = resolveTypes(preset);
+            types.add(presetTypes);
+
+            if (presetTypes == null) {
+                unindexed.add(preset);
+            } else {
+                allTypes.addAll(presetTypes);
+            }
+        }
+
+        Map<XMaterial, List<BlockPreset>> byType = new EnumMap<>(XMaterial.class);
+        for (XMaterial type : allTypes) {
+            List<BlockPreset> candidates = new ArrayList<>();
+            for (int i = 0; i < ordered.size(); i++) {
+                Set<XMaterial> presetTypes = types.get(i);
+                if (presetTypes == null || presetTypes.contains(type)) {
+                    candidates.add(ordered.get(i));
+                }
+            }
+            byType.put(type, Collections.unmodifiableList(candidates));
+        }
+
+        log.fine(() -> String.format("Indexed %d preset(s) by %d block type(s), %d unindexed.", types.size(), byType.size(), unindexed.size()));
+        return new PresetIndex(byType, Collections.unmodifiableList(unindexed));
+    }
+
+    @Nullable
+    private static Set<XMaterial> resolveTypes(BlockPreset preset) {
+        if (preset.getTargetMaterial() == null) {
+            return null;
+        }
+
+        Set<XMaterial> types = EnumSet.noneOf(XMaterial.class);
+        for (BlockRegenMaterial material : preset.getTargetMaterial().getMaterials()) {
+            XMaterial type;
+            try {
+                type = material.getType();
+            } catch (RuntimeException e) {
+                type = null;
+            }
+
+            if (type == null) {
+                return null;
+            }
+            types.add(type);
+        }
+        return types;
+    }
+
+    /**
+     * Return an index of the presets passing the filter.
+     */
+    @NotNull
+    public PresetIndex filter(@NotNull Predicate<BlockPreset> filter) {
+        Map<XMaterial, List<BlockPreset>> byType = new EnumMap<>(XMaterial.class);
+        for (Map.Entry<XMaterial, List<BlockPreset>> entry : this.byType.entrySet()) {
+            List<BlockPreset> candidates = filterList(entry.getValue(), filter);
+            if (!candidates.isEmpty()) {
+                byType.put(entry.getKey(), candidates);
+            }
+        }
+        return new PresetIndex(byType, filterList(unindexed, filter));
+    }
+
+    private static List<BlockPreset> filterList(List<BlockPreset> presets, Predicate<BlockPreset> filter) {
+        List<BlockPreset> filtered = new ArrayList<>();
+        for (BlockPreset preset : presets) {
+            if (filter.test(preset)) {
+                filtered.add(preset);
+            }
+        }
+        return Collections.unmodifiableList(filtered);
+    }
+
+    /**
+     * Return the presets that could match a block of the type, in declaration order.
+     */
+    @NotNull
+    public List<BlockPreset> getCandidates(@Nullable XMaterial type) {
+        if (type == null) {
+            return unindexed;
+        }
+        return byType.getOrDefault(type, unindexed);
+    }
+
+    public boolean isEmpty() {
+        return byType.isEmpty() && unindexed.isEmpty();
+    }
+}
@@ -38,7 +38,11 @@ public class PresetManager {
 
     private final BlockRegenPlugin plugin;
 
-    private final Map<String, BlockPreset> presets = new HashMap<>();
+    // In the order they're declared in, the first matching preset is used.
+    private final Map<String, BlockPreset> presets = new LinkedHashMap<>();
+
+    // Built on first use after the presets change.
+    private volatile PresetIndex index;
 
     @Getter
     private final GenericConditionProvider conditions = GenericConditionProvider.empty();
@@ -54,10 +58,21 @@ public class PresetManager {
         return presets.get(name);
     }
 
+    @NotNull
+    public PresetIndex getIndex() {
+        PresetIndex index = this.index;
+        if (index == null) {
+            index = PresetIndex.build(presets.values());
+            this.index = index;
+        }
+        return index;
+    }
+
     @Nullable
     public BlockPreset getPreset(@NotNull Block block) {
-        for (BlockPreset preset : this.presets.values()) {
-            if (preset.getTargetMaterial().matches(block)) {
+        XMaterial type = plugin.getBlockType(block);
+        for (BlockPreset preset : getIndex().getCandidates(type)) {
+            if (preset.getTargetMaterial().matches(block, type)) {
                 return preset;
             }
         }
@@ -70,8 +85,10 @@ public class PresetManager {
             return getPreset(block);
         }
 
-        for (BlockPreset preset : this.presets.values()) {
-            if (preset.getTargetMaterial().matches(block) && region.hasPreset(preset.getName())) {
+        // Only the presets allowed in the area.
+        XMaterial type = plugin.getBlockType(block);
+        for (BlockPreset preset : region.getPresetIndex(getIndex()).getCandidates(type)) {
+            if (preset.getTargetMaterial().matches(block, type)) {
                 return preset;
             }
         }
@@ -97,6 +114,7 @@ public class PresetManager {
 
     private void load() {
         presets.clear();
+        this.index = null;
 
         // Clear all events before loading.
         plugin.getEventManager().clearEvents();
@@ -288,6 +306,7 @@ public class PresetManager {
         }
 
         presets.put(name, preset);
+        this.index = null;
         log.fine(() -> "Loaded preset " + preset);
     }
 
@@ -1,12 +1,17 @@
 package nl.aurorion.blockregen.preset.material;
 
+import com.cryptomorin.xseries.XMaterial;
 import lombok.Getter;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import nl.aurorion.blockregen.material.builtin.MinecraftMaterial;
 import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 // A collection of BlockRegen materials to match against.
@@ -14,13 +19,32 @@ public class TargetMaterial {
     @Getter
     private final List<BlockRegenMaterial> materials;
 
+    // Vanilla materials without data by ordinal, matched on the type alone.
+    private final BitSet types = new BitSet();
+
+    // Materials with data or from other plugins, checked one by one.
+    private final List<BlockRegenMaterial> residual = new ArrayList<>();
+
     private TargetMaterial(Collection<BlockRegenMaterial> materials) {
         this.materials = new ArrayList<>(materials);
+        compile();
     }
 
     private TargetMaterial(BlockRegenMaterial material) {
-        this.materials = new ArrayList<>();
-        this.materials.add(material);
+        this(Collections.singletonList(material));
+    }
+
+    private void compile() {
+        for (BlockRegenMaterial material : this.materials) {
+            if (material instanceof MinecraftMaterial) {
+                MinecraftMaterial minecraftMaterial = (MinecraftMaterial) material;
+                if (minecraftMaterial.getNodeData() == null && minecraftMaterial.getMaterial() != null) {
+                    types.set(minecraftMaterial.getMaterial().ordinal());
+                    continue;
+                }
+            }
+            residual.add(material);
+        }
     }
 
     @NotNull
@@ -33,10 +57,18 @@ public class TargetMaterial {
         return new TargetMaterial(materials);
     }
 
-    // Returns whether any of the target materials match.
-    public boolean matches(@NotNull Block block) {
-        for (BlockRegenMaterial targetMaterial : this.materials) {
-            if (targetMaterial.check(block)) {
+    /**
+     * Returns whether any of the target materials match.
+     *
+     * @param type Type of the block as returned by BlockRegenPlugin#getBlockType.
+     */
+    public boolean matches(@NotNull Block block, @Nullable XMaterial type) {
+        if (type != null && this.types.get(type.ordinal())) {
+            return true;
+        }
+
+        for (BlockRegenMaterial targetMaterial : this.residual) {
+            if (targetMaterial.check(block, type)) {
                 return true;
             }
         }
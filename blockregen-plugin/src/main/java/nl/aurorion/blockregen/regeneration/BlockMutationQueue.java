@@ -0,0 +1,222 @@
+package nl.aurorion.blockregen.regeneration;
+
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.util.BlockPositions;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Collects block changes of regeneration processes and applies them once per tick grouped by chunk and section.
+ * <p>
+ * Replacing a block queues a state update for the following flush, so tile entities (skulls,...) get refreshed. A flush
+ * can be limited by a budget, what's left is carried over to the next one.
+ */
+@Log
+public class BlockMutationQueue {
+
+    private enum Type {
+        REPLACE,
+        REGENERATE,
+        STATE_UPDATE
+    }
+
+    private static class Mutation {
+        private final Type type;
+        private final RegenerationProcess process;
+
+        private final String world;
+        private final long chunkKey;
+        private final int section;
+        private final long blockKey;
+
+        private Mutation(Type type, RegenerationProcess process) {
+            this.type = type;
+            this.process = process;
+
+            SimpleLocation location = process.getLocation();
+            this.world = location.getWorld();
+            this.chunkKey = ProcessIndex.chunkKey(location.getX() >> 4, location.getZ() >> 4);
+            this.section = location.getY() >> 4;
+            this.blockKey = BlockPositions.pack(location.getX(), location.getY(), location.getZ());
+        }
+
+        private boolean isSameBlock(Mutation other) {
+            return blockKey == other.blockKey && world.equals(other.world);
+        }
+    }
+
+    // Stable sort keeps the queued order for mutations of the same block.
+    private static final Comparator<Mutation> ORDER = Comparator.<Mutation, String>comparing(m -> m.world)
+            .thenComparingLong(m -> m.chunkKey)
+            .thenComparingInt(m -> m.section)
+            .thenComparingLong(m -> m.blockKey);
+
+    private final BlockRegenPlugin plugin;
+
+    private List<Mutation> pending = new ArrayList<>();
+
+    // State updates to apply on the next flush.
+    private List<Mutation> stateUpdates = new ArrayList<>();
+
+    // Left over by a flush that ran out of budget, applied first on the next one.
+    private List<Mutation> carried = new ArrayList<>();
+
+    public BlockMutationQueue(BlockRegenPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Queue placing the replace material of the process.
+     */
+    public synchronized void replace(@NotNull RegenerationProcess process) {
+        pending.add(new Mutation(Type.REPLACE, process));
+    }
+
+    /**
+     * Queue placing the regenerated material of the process.
+     */
+    public synchronized void regenerate(@NotNull RegenerationProcess process) {
+        pending.add(new Mutation(Type.REGENERATE, process));
+    }
+
+    /**
+     * Queue a forced block state update at the location of the process.
+     */
+    public synchronized void updateState(@NotNull RegenerationProcess process) {
+        stateUpdates.add(new Mutation(Type.STATE_UPDATE, process));
+    }
+
+    public synchronized int getPendingCount() {
+        return carried.size() + pending.size() + stateUpdates.size();
+    }
+
+    public synchronized boolean hasCarried() {
+        return !carried.isEmpty();
+    }
+
+    /**
+     * Apply all the queued mutations. Has to be called from the main thread.
+     */
+    public void flush() {
+        flush(0, 0);
+    }
+
+    /**
+     * Apply the queued mutations up to the budget and carry the rest over to the next flush. Mutations of a single
+     * block are never split. Has to be called from the main thread.
+     *
+     * @param maxMutations Mutations to apply at most, <= 0 => unlimited.
+     * @param maxNanos     Time to spend at most, <= 0 => unlimited.
+     */
+    public void flush(int maxMutations, long maxNanos) {
+        List<Mutation> mutations;
+
+        synchronized (this) {
+            if (carried.isEmpty() && pending.isEmpty() && stateUpdates.isEmpty()) {
+                return;
+            }
+
+            // Carried over ones are the oldest, state updates go after the block changes of the previous flush.
+            mutations = carried;
+            mutations.addAll(stateUpdates);
+            mutations.addAll(pending);
+
+            this.carried = new ArrayList<>();
+            this.stateUpdates = new ArrayList<>();
+            this.pending = new ArrayList<>();
+        }
+
+        mutations.sort(ORDER);
+
+        long start = System.nanoTime();
+        int applied = 0;
+
+        int i = 0;
+        for (; i < mutations.size(); i++) {
+            Mutation mutation = mutations.get(i);
+
+            // Stop between blocks once out of budget, always make some progress.
+            if (applied > 0 && !mutation.isSameBlock(mutations.get(i - 1))
+                    && ((maxMutations > 0 && applied >= maxMutations) || (maxNanos > 0 && System.nanoTime() - start >= maxNanos))) {
+                break;
+            }
+
+            // A later replace/regenerate of the same block overrides this one.
+            if (mutation.type != Type.STATE_UPDATE && isOverridden(mutations, i)) {
+                continue;
+            }
+
+            try {
+                apply(mutation);
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Failed to apply " + mutation.type + " for " + mutation.process, e);
+            }
+            applied++;
+        }
+
+        if (i < mutations.size()) {
+            List<Mutation> left = new ArrayList<>(mutations.subList(i, mutations.size()));
+            synchronized (this) {
+                this.carried = left;
+            }
+
+            int carriedCount = left.size();
+            log.fine(() -> "Carried " + carriedCount + " block mutation(s) over to the next tick.");
+        }
+
+        int count = applied;
+        log.finer(() -> "Applied " + count + " block mutation(s).");
+    }
+
+    /**
+     * Flush until nothing is queued, including the state updates queued by the flush itself. Has to be called from the
+     * main thread.
+     */
+    public void drain() {
+        // State updates don't queue anything further.
+        while (getPendingCount() > 0) {
+            flush();
+        }
+    }
+
+    private static boolean isOverridden(List<Mutation> mutations, int index) {
+        Mutation mutation = mutations.get(index);
+        for (int i = index + 1; i < mutations.size(); i++) {
+            Mutation next = mutations.get(i);
+            if (!next.isSameBlock(mutation)) {
+                return false;
+            }
+            if (next.type != Type.STATE_UPDATE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void apply(Mutation mutation) {
+        RegenerationProcess process = mutation.process;
+
+        switch (mutation.type) {
+            case REPLACE:
+                process.replaceBlock();
+                break;
+            case REGENERATE:
+                process.regenerateBlock();
+                break;
+            case STATE_UPDATE:
+                Block block = process.getBlock();
+                if (block != null) {
+                    plugin.getVersionManager().getMethods().updateState(block);
+                }
+                break;
+        }
+    }
+}
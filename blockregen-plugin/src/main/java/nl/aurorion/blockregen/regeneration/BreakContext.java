@@ -0,0 +1,59 @@
+package nl.aurorion.blockregen.regeneration;
+
+import lombok.Getter;
+import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import nl.aurorion.blockregen.preset.BlockPreset;
+import nl.aurorion.blockregen.region.struct.RegenerationArea;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * State of a handled block break, resolved once per event and passed along instead of being looked up again.
+ */
+@Getter
+public class BreakContext {
+
+    @NotNull
+    private final Block block;
+
+    @NotNull
+    private final Player player;
+
+    // Copy of the item in the main hand when the block was broken. Safe to read from the async reward task.
+    @Nullable
+    private final ItemStack tool;
+
+    @Nullable
+    private final RegenerationArea area;
+
+    @NotNull
+    private final BlockPreset preset;
+
+    // Null when the material of the block couldn't be resolved.
+    @Nullable
+    private final BlockRegenMaterial material;
+
+    private final int vanillaExperience;
+
+    public BreakContext(@NotNull Block block, @NotNull Player player, @Nullable ItemStack tool, @Nullable RegenerationArea area,
+                        @NotNull BlockPreset preset, @Nullable BlockRegenMaterial material, int vanillaExperience) {
+        this.block = block;
+        this.player = player;
+        this.tool = tool;
+        this.area = area;
+        this.preset = preset;
+        this.material = material;
+        this.vanillaExperience = vanillaExperience;
+    }
+
+    /**
+     * Context for another block broken along with this one, by the same player and tool.
+     */
+    @NotNull
+    public BreakContext relative(@NotNull Block block, @NotNull BlockPreset preset, @Nullable BlockRegenMaterial material, int vanillaExperience) {
+        return new BreakContext(block, player, tool, area, preset, material, vanillaExperience);
+    }
+}
@@ -0,0 +1,370 @@
+package nl.aurorion.blockregen.regeneration;
+
+import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.util.BlockPositions;
+import nl.aurorion.blockregen.util.LongHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Processes of unloaded chunks packed into primitive arrays, per chunk.
+ * <p>
+ * Only the persisted state is kept: coordinates, id, regeneration time and ids of the preset name, region name and
+ * materials. Names and materials are shared through tables, ids are never released. Processes are materialized as
+ * detached copies when asked for and started again once their chunk loads. Synchronized, saving reads the snapshots
+ * from another thread.
+ */
+public class CompactProcessStore {
+
+    // No preset, region or replace material.
+    private static final int NONE = -1;
+
+    // Struct of arrays, one slot per process.
+    private static class ChunkTable {
+        private int size = 0;
+
+        private long[] positions = new long[4];
+        private long[] mostSigIds = new long[4];
+        private long[] leastSigIds = new long[4];
+
+        // System time to regenerate at when scheduled, the time left otherwise.
+        private long[] times = new long[4];
+        private final BitSet scheduled = new BitSet();
+
+        private int[] presets = new int[4];
+        private int[] regions = new int[4];
+        private int[] originals = new int[4];
+        private int[] replacements = new int[4];
+
+        // Slot of each position.
+        private final LongHashMap<Integer> slots = new LongHashMap<>();
+
+        private void grow() {
+            int capacity = positions.length * 2;
+            positions = Arrays.copyOf(positions, capacity);
+            mostSigIds = Arrays.copyOf(mostSigIds, capacity);
+            leastSigIds = Arrays.copyOf(leastSigIds, capacity);
+            times = Arrays.copyOf(times, capacity);
+            presets = Arrays.copyOf(presets, capacity);
+            regions = Arrays.copyOf(regions, capacity);
+            originals = Arrays.copyOf(originals, capacity);
+            replacements = Arrays.copyOf(replacements, capacity);
+        }
+
+        private int indexOf(long position) {
+            Integer slot = slots.get(position);
+            return slot == null ? -1 : slot;
+        }
+
+        private int append(long position) {
+            if (size == positions.length) {
+                grow();
+            }
+            int index = size++;
+            positions[index] = position;
+            slots.put(position, index);
+            return index;
+        }
+
+        // Move the last slot into the removed one.
+        private void remove(int index) {
+            int last = --size;
+            slots.remove(positions[index]);
+
+            if (index != last) {
+                positions[index] = positions[last];
+                mostSigIds[index] = mostSigIds[last];
+                leastSigIds[index] = leastSigIds[last];
+                times[index] = times[last];
+                scheduled.set(index, scheduled.get(last));
+                presets[index] = presets[last];
+                regions[index] = regions[last];
+                originals[index] = originals[last];
+                replacements[index] = replacements[last];
+                slots.put(positions[index], index);
+            }
+            scheduled.clear(last);
+        }
+    }
+
+    private final Map<String, LongHashMap<ChunkTable>> worlds = new HashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+
+    private final List<BlockRegenMaterial> materials = new ArrayList<>();
+    private final Map<BlockRegenMaterial, Integer> materialIds = new HashMap<>();
+
+    private int size = 0;
+
+    private int stringId(@Nullable String value) {
+        if (value == null) {
+            return NONE;
+        }
+        return stringIds.computeIfAbsent(value, k -> {
+            strings.add(k);
+            return strings.size() - 1;
+        });
+    }
+
+    private int materialId(@Nullable BlockRegenMaterial material) {
+        if (material == null) {
+            return NONE;
+        }
+        return materialIds.computeIfAbsent(material, k -> {
+            materials.add(k);
+            return materials.size() - 1;
+        });
+    }
+
+    /**
+     * Pack the processes of the chunk. They have to be stopped and removed from the cache already.
+     */
+    public synchronized void pack(@NotNull String worldName, int chunkX, int chunkZ, @NotNull List<RegenerationProcess> processes) {
+        if (processes.isEmpty()) {
+            return;
+        }
+
+        LongHashMap<ChunkTable> world = worlds.computeIfAbsent(worldName, k -> new LongHashMap<>());
+        long chunkKey = ProcessIndex.chunkKey(chunkX, chunkZ);
+        ChunkTable table = world.get(chunkKey);
+
+        // Positions taken from the index are unique, only a chunk packed already needs the lookup.
+        boolean fresh = table == null;
+        if (fresh) {
+            table = new ChunkTable();
+            world.put(chunkKey, table);
+        }
+
+        for (RegenerationProcess process : processes) {
+            SimpleLocation location = process.getLocation();
+            long position = BlockPositions.pack(location.getX(), location.getY(), location.getZ());
+
+            int index = fresh ? -1 : table.indexOf(position);
+            if (index == -1) {
+                index = table.append(position);
+                size++;
+            }
+
+            table.mostSigIds[index] = process.getId().getMostSignificantBits();
+            table.leastSigIds[index] = process.getId().getLeastSignificantBits();
+
+            // Keep counting down while unloaded.
+            boolean scheduled = process.getPreset() != null && process.getRegenerationTime() != 0 && process.shouldRegenerate();
+            table.times[index] = scheduled ? process.getRegenerationTime() : process.getTimeLeft();
+            table.scheduled.set(index, scheduled);
+
+            table.presets[index] = stringId(process.getPresetName());
+            table.regions[index] = stringId(process.getRegionName());
+            table.originals[index] = materialId(process.getOriginalMaterial());
+            table.replacements[index] = materialId(process.getPreset() == null ? null : process.getReplaceMaterial());
+        }
+    }
+
+    /**
+     * Remove and return the processes of the chunk, detached and not converted yet.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> unpack(@NotNull String worldName, int chunkX, int chunkZ) {
+        LongHashMap<ChunkTable> world = worlds.get(worldName);
+        if (world == null) {
+            return Collections.emptyList();
+        }
+
+        ChunkTable table = world.remove(ProcessIndex.chunkKey(chunkX, chunkZ));
+        if (table == null) {
+            return Collections.emptyList();
+        }
+
+        if (world.isEmpty()) {
+            worlds.remove(worldName);
+        }
+
+        long now = System.currentTimeMillis();
+        List<RegenerationProcess> processes = new ArrayList<>(table.size);
+        for (int i = 0; i < table.size; i++) {
+            processes.add(materialize(worldName, table, i, now));
+        }
+        size -= table.size;
+        return processes;
+    }
+
+    /**
+     * Return a detached copy of the packed process at the location.
+     */
+    @Nullable
+    public synchronized RegenerationProcess get(@NotNull String worldName, int x, int y, int z) {
+        ChunkTable table = table(worldName, x >> 4, z >> 4);
+        if (table == null) {
+            return null;
+        }
+
+        int index = table.indexOf(BlockPositions.pack(x, y, z));
+        return index == -1 ? null : materialize(worldName, table, index, System.currentTimeMillis());
+    }
+
+    /**
+     * Remove and return the processes passing the filter from all the chunks, detached and not converted yet.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> take(@NotNull Predicate<RegenerationProcess> filter) {
+        List<RegenerationProcess> taken = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        Iterator<Map.Entry<String, LongHashMap<ChunkTable>>> it = worlds.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, LongHashMap<ChunkTable>> entry = it.next();
+            LongHashMap<ChunkTable> world = entry.getValue();
+
+            List<Long> emptied = new ArrayList<>();
+            world.forEach((chunkKey, table) -> {
+                // Backwards, removing moves the last slot into the removed one.
+                for (int i = table.size - 1; i >= 0; i--) {
+                    RegenerationProcess process = materialize(entry.getKey(), table, i, now);
+                    if (filter.test(process)) {
+                        taken.add(process);
+                        table.remove(i);
+                        size--;
+                    }
+                }
+
+                if (table.size == 0) {
+                    emptied.add(chunkKey);
+                }
+            });
+
+            emptied.forEach(world::remove);
+            if (world.isEmpty()) {
+                it.remove();
+            }
+        }
+        return taken;
+    }
+
+    public synchronized boolean remove(@NotNull String worldName, int x, int y, int z) {
+        ChunkTable table = table(worldName, x >> 4, z >> 4);
+        if (table == null) {
+            return false;
+        }
+
+        int index = table.indexOf(BlockPositions.pack(x, y, z));
+        if (index == -1) {
+            return false;
+        }
+
+        table.remove(index);
+        size--;
+
+        if (table.size == 0) {
+            LongHashMap<ChunkTable> world = worlds.get(worldName);
+            world.remove(ProcessIndex.chunkKey(x >> 4, z >> 4));
+            if (world.isEmpty()) {
+                worlds.remove(worldName);
+            }
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(@NotNull String worldName, int chunkX, int chunkZ) {
+        return table(worldName, chunkX, chunkZ) != null;
+    }
+
+    @Nullable
+    private ChunkTable table(String worldName, int chunkX, int chunkZ) {
+        LongHashMap<ChunkTable> world = worlds.get(worldName);
+        return world == null ? null : world.get(ProcessIndex.chunkKey(chunkX, chunkZ));
+    }
+
+    private RegenerationProcess materialize(String worldName, ChunkTable table, int index, long now) {
+        long position = table.positions[index];
+
+        RegenerationProcess process = new RegenerationProcess();
+        process.setId(new UUID(table.mostSigIds[index], table.leastSigIds[index]));
+        process.setLocation(new SimpleLocation(worldName, BlockPositions.unpackX(position), BlockPositions.unpackY(position), BlockPositions.unpackZ(position)));
+        process.setWorldName(worldName);
+        process.setPresetName(table.presets[index] == NONE ? null : strings.get(table.presets[index]));
+        process.setRegionName(table.regions[index] == NONE ? null : strings.get(table.regions[index]));
+        process.setOriginalCustomMaterial(materials.get(table.originals[index]));
+
+        if (table.replacements[index] != NONE) {
+            process.setReplaceMaterial(materials.get(table.replacements[index]));
+        }
+
+        if (table.scheduled.get(index)) {
+            long regenerationTime = table.times[index];
+            process.setTimeLeft(Math.max(0, regenerationTime - now));
+            process.setRegenerationTime(regenerationTime);
+        } else {
+            process.setTimeLeft(table.times[index]);
+        }
+        return process;
+    }
+
+    /**
+     * Return detached copies of the packed processes in the world for persisting.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> snapshot(@NotNull String worldName) {
+        LongHashMap<ChunkTable> world = worlds.get(worldName);
+        if (world == null) {
+            return Collections.emptyList();
+        }
+
+        long now = System.currentTimeMillis();
+        List<RegenerationProcess> snapshot = new ArrayList<>();
+        world.forEachValue(table -> {
+            for (int i = 0; i < table.size; i++) {
+                RegenerationProcess process = materialize(worldName, table, i, now);
+                // Fix the time left, it's persisted as is.
+                process.setRegenerationTime(0);
+                snapshot.add(process);
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * Return detached copies of all the packed processes.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> values() {
+        List<RegenerationProcess> values = new ArrayList<>(size);
+        long now = System.currentTimeMillis();
+        worlds.forEach((worldName, world) -> world.forEachValue(table -> {
+            for (int i = 0; i < table.size; i++) {
+                values.add(materialize(worldName, table, i, now));
+            }
+        }));
+        return values;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized void clear() {
+        worlds.clear();
+        strings.clear();
+        stringIds.clear();
+        materials.clear();
+        materialIds.clear();
+        size = 0;
+    }
+}
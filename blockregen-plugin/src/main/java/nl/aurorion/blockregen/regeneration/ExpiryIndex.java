@@ -0,0 +1,141 @@
+package nl.aurorion.blockregen.regeneration;
+
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary min-heap of processes ordered by their regeneration time.
+ * <p>
+ * Each process stores its position in the heap, so updates and removals are O(log n). The regeneration time of
+ * an indexed process must not change without calling {@link #update(RegenerationProcess)}. Not thread-safe.
+ */
+class ExpiryIndex {
+
+    private final List<RegenerationProcess> heap = new ArrayList<>();
+
+    int size() {
+        return heap.size();
+    }
+
+    boolean contains(@NotNull RegenerationProcess process) {
+        int index = process.getExpiryIndex();
+        return index >= 0 && index < heap.size() && heap.get(index) == process;
+    }
+
+    /**
+     * Insert the process or move it according to its new regeneration time.
+     */
+    void update(@NotNull RegenerationProcess process) {
+        if (contains(process)) {
+            int index = process.getExpiryIndex();
+            if (!siftUp(index)) {
+                siftDown(index);
+            }
+            return;
+        }
+
+        heap.add(process);
+        process.setExpiryIndex(heap.size() - 1);
+        siftUp(heap.size() - 1);
+    }
+
+    void remove(@NotNull RegenerationProcess process) {
+        if (!contains(process)) {
+            return;
+        }
+
+        int index = process.getExpiryIndex();
+        int last = heap.size() - 1;
+
+        process.setExpiryIndex(-1);
+
+        if (index == last) {
+            heap.remove(last);
+            return;
+        }
+
+        RegenerationProcess moved = heap.remove(last);
+        set(index, moved);
+        if (!siftUp(index)) {
+            siftDown(index);
+        }
+    }
+
+    void clear() {
+        heap.forEach(process -> process.setExpiryIndex(-1));
+        heap.clear();
+    }
+
+    /**
+     * Add all processes with regeneration time at or before {@code time} to the list. Only visits those and their
+     * direct children.
+     */
+    void collectDue(long time, @NotNull List<RegenerationProcess> into) {
+        collectDue(0, time, into);
+    }
+
+    private void collectDue(int index, long time, List<RegenerationProcess> into) {
+        // Iterative over the left spine, recursive on the right children to keep the depth at O(log n).
+        while (index < heap.size()) {
+            RegenerationProcess process = heap.get(index);
+            if (process.getRegenerationTime() > time) {
+                return;
+            }
+            into.add(process);
+            collectDue(2 * index + 2, time, into);
+            index = 2 * index + 1;
+        }
+    }
+
+    private void set(int index, RegenerationProcess process) {
+        heap.set(index, process);
+        process.setExpiryIndex(index);
+    }
+
+    private boolean siftUp(int index) {
+        RegenerationProcess process = heap.get(index);
+        int start = index;
+
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            RegenerationProcess parentProcess = heap.get(parent);
+            if (parentProcess.getRegenerationTime() <= process.getRegenerationTime()) {
+                break;
+            }
+            set(index, parentProcess);
+            index = parent;
+        }
+
+        set(index, process);
+        return index != start;
+    }
+
+    private void siftDown(int index) {
+        RegenerationProcess process = heap.get(index);
+        int size = heap.size();
+
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && heap.get(child + 1).getRegenerationTime() < heap.get(child).getRegenerationTime()) {
+                child++;
+            }
+
+            RegenerationProcess childProcess = heap.get(child);
+            if (childProcess.getRegenerationTime() >= process.getRegenerationTime()) {
+                break;
+            }
+
+            set(index, childProcess);
+            index = child;
+        }
+
+        set(index, process);
+    }
+}
@@ -0,0 +1,44 @@
+package nl.aurorion.blockregen.regeneration;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+
+import java.io.IOException;
+
+/**
+ * Serializes a snapshot of the process with the time left at that moment. Interns the materials of read processes.
+ */
+public class ProcessAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!RegenerationProcess.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+
+        TypeAdapter<RegenerationProcess> delegate = gson.getDelegateAdapter(this, TypeToken.get(RegenerationProcess.class));
+
+        return (TypeAdapter<T>) new TypeAdapter<RegenerationProcess>() {
+            @Override
+            public void write(JsonWriter out, RegenerationProcess value) throws IOException {
+                // Write a detached copy, the live process is left alone.
+                delegate.write(out, value == null ? null : value.snapshot());
+            }
+
+            @Override
+            public RegenerationProcess read(JsonReader in) throws IOException {
+                RegenerationProcess process = delegate.read(in);
+                if (process != null) {
+                    process.intern();
+                }
+                return process;
+            }
+        };
+    }
+}
@@ -0,0 +1,307 @@
+package nl.aurorion.blockregen.regeneration;
+
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.util.BlockPositions;
+import nl.aurorion.blockregen.util.LongHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Running processes indexed by world, chunk and packed block coordinates.
+ * <p>
+ * World names are interned into ids that index the per-world maps. Synchronized, lookups are cheap enough to be done
+ * from the main thread on every event while saving reads a copy from another thread.
+ */
+public class ProcessIndex {
+
+    // Processes of a single chunk.
+    private static class ChunkBucket {
+        private final LongHashMap<RegenerationProcess> processes = new LongHashMap<>();
+
+        // Processes that came due while the chunk was unloaded, in the order they came due.
+        private LinkedHashSet<RegenerationProcess> overdue;
+    }
+
+    private final Map<String, Integer> worldIds = new HashMap<>();
+
+    private final List<LongHashMap<ChunkBucket>> worlds = new ArrayList<>();
+
+    private int size = 0;
+
+    private int overdueCount = 0;
+
+    private final ExpiryIndex expiry = new ExpiryIndex();
+
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Return the interned id of the world. Ids are never released.
+     */
+    public synchronized int worldId(@NotNull String worldName) {
+        Integer id = worldIds.get(worldName);
+        if (id == null) {
+            id = worlds.size();
+            worldIds.put(worldName, id);
+            worlds.add(new LongHashMap<>());
+        }
+        return id;
+    }
+
+    @Nullable
+    private ChunkBucket bucket(String worldName, int chunkX, int chunkZ) {
+        Integer id = worldIds.get(worldName);
+        return id == null ? null : worlds.get(id).get(chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Add the process to the index. Return false if there already is a process at the location.
+     */
+    public synchronized boolean add(@NotNull RegenerationProcess process) {
+        SimpleLocation location = process.getLocation();
+        LongHashMap<ChunkBucket> world = worlds.get(worldId(location.getWorld()));
+
+        long chunkKey = chunkKey(location.getX() >> 4, location.getZ() >> 4);
+        ChunkBucket bucket = world.get(chunkKey);
+        if (bucket == null) {
+            bucket = new ChunkBucket();
+            world.put(chunkKey, bucket);
+        }
+
+        if (bucket.processes.putIfAbsent(BlockPositions.pack(location.getX(), location.getY(), location.getZ()), process) != null) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    @Nullable
+    public synchronized RegenerationProcess get(@NotNull String worldName, int x, int y, int z) {
+        ChunkBucket bucket = bucket(worldName, x >> 4, z >> 4);
+        return bucket == null ? null : bucket.processes.get(BlockPositions.pack(x, y, z));
+    }
+
+    @Nullable
+    public synchronized RegenerationProcess remove(@NotNull String worldName, int x, int y, int z) {
+        Integer id = worldIds.get(worldName);
+        if (id == null) {
+            return null;
+        }
+
+        LongHashMap<ChunkBucket> world = worlds.get(id);
+        long chunkKey = chunkKey(x >> 4, z >> 4);
+        ChunkBucket bucket = world.get(chunkKey);
+        if (bucket == null) {
+            return null;
+        }
+
+        RegenerationProcess removed = bucket.processes.remove(BlockPositions.pack(x, y, z));
+        if (removed == null) {
+            return null;
+        }
+        size--;
+        expiry.remove(removed);
+
+        if (bucket.overdue != null && bucket.overdue.remove(removed)) {
+            overdueCount--;
+        }
+
+        if (bucket.processes.isEmpty()) {
+            world.remove(chunkKey);
+        }
+        return removed;
+    }
+
+    /**
+     * Remove and return the processes of the chunk passing the filter.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> takeChunk(@NotNull String worldName, int chunkX, int chunkZ, @NotNull Predicate<RegenerationProcess> filter) {
+        Integer id = worldIds.get(worldName);
+        if (id == null) {
+            return Collections.emptyList();
+        }
+
+        LongHashMap<ChunkBucket> world = worlds.get(id);
+        long chunkKey = chunkKey(chunkX, chunkZ);
+        ChunkBucket bucket = world.get(chunkKey);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+
+        List<RegenerationProcess> taken = new ArrayList<>();
+        bucket.processes.forEachValue(process -> {
+            if (filter.test(process)) {
+                taken.add(process);
+            }
+        });
+
+        for (RegenerationProcess process : taken) {
+            SimpleLocation location = process.getLocation();
+            bucket.processes.remove(BlockPositions.pack(location.getX(), location.getY(), location.getZ()));
+            expiry.remove(process);
+        }
+        size -= taken.size();
+
+        // Drop the taken ones from the overdue in one pass.
+        if (bucket.overdue != null) {
+            int overdue = bucket.overdue.size();
+            if (bucket.processes.isEmpty()) {
+                bucket.overdue = null;
+            } else {
+                bucket.overdue.removeIf(process -> {
+                    SimpleLocation location = process.getLocation();
+                    return bucket.processes.get(BlockPositions.pack(location.getX(), location.getY(), location.getZ())) != process;
+                });
+            }
+            overdueCount -= overdue - (bucket.overdue == null ? 0 : bucket.overdue.size());
+        }
+
+        if (bucket.processes.isEmpty()) {
+            world.remove(chunkKey);
+        }
+        return taken;
+    }
+
+    /**
+     * Mark the process to be regenerated once its chunk gets loaded. Return false if the process is not indexed or
+     * already marked.
+     */
+    public synchronized boolean markOverdue(@NotNull RegenerationProcess process) {
+        SimpleLocation location = process.getLocation();
+        ChunkBucket bucket = bucket(location.getWorld(), location.getX() >> 4, location.getZ() >> 4);
+
+        // Not indexed (anymore).
+        if (bucket == null || bucket.processes.get(BlockPositions.pack(location.getX(), location.getY(), location.getZ())) != process) {
+            return false;
+        }
+
+        if (bucket.overdue == null) {
+            bucket.overdue = new LinkedHashSet<>();
+        }
+
+        if (!bucket.overdue.add(process)) {
+            return false;
+        }
+        overdueCount++;
+        return true;
+    }
+
+    /**
+     * Remove and return the overdue processes of the chunk, in the order they came due.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> takeOverdue(@NotNull String worldName, int chunkX, int chunkZ) {
+        ChunkBucket bucket = bucket(worldName, chunkX, chunkZ);
+        if (bucket == null || bucket.overdue == null) {
+            return Collections.emptyList();
+        }
+
+        List<RegenerationProcess> overdue = new ArrayList<>(bucket.overdue);
+        bucket.overdue = null;
+        overdueCount -= overdue.size();
+        return overdue;
+    }
+
+    public synchronized int getOverdueCount() {
+        return overdueCount;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized void clear() {
+        worlds.forEach(LongHashMap::clear);
+        size = 0;
+        overdueCount = 0;
+        expiry.clear();
+    }
+
+    /**
+     * Update the position of the process in the expiry index after its regeneration time changed. Processes that
+     * don't regenerate on their own are left out. Return false if the process is not indexed.
+     */
+    public synchronized boolean updateExpiry(@NotNull RegenerationProcess process) {
+        SimpleLocation location = process.getLocation();
+        RegenerationProcess indexed = get(location.getWorld(), location.getX(), location.getY(), location.getZ());
+
+        if (indexed != process) {
+            return false;
+        }
+
+        if (process.getPreset() != null && process.shouldRegenerate()) {
+            expiry.update(process);
+        } else {
+            expiry.remove(process);
+        }
+        return true;
+    }
+
+    /**
+     * Return the processes that should have regenerated at or before the given time.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> getDue(long time) {
+        List<RegenerationProcess> due = new ArrayList<>();
+        expiry.collectDue(time, due);
+        return due;
+    }
+
+    public synchronized void forEach(@NotNull Consumer<RegenerationProcess> consumer) {
+        worlds.forEach(world -> world.forEachValue(bucket -> bucket.processes.forEachValue(consumer)));
+    }
+
+    /**
+     * Return detached snapshots of the indexed processes in the world for persisting.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> snapshot(@NotNull String worldName) {
+        List<RegenerationProcess> snapshot = new ArrayList<>();
+
+        Integer id = worldIds.get(worldName);
+        if (id != null) {
+            worlds.get(id).forEachValue(bucket -> bucket.processes.forEachValue(process -> snapshot.add(process.snapshot())));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Return detached snapshots of the indexed processes in the chunk for persisting.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> snapshot(@NotNull String worldName, int chunkX, int chunkZ) {
+        List<RegenerationProcess> snapshot = new ArrayList<>();
+
+        ChunkBucket bucket = bucket(worldName, chunkX, chunkZ);
+        if (bucket != null) {
+            bucket.processes.forEachValue(process -> snapshot.add(process.snapshot()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Return a copy of all the indexed processes.
+     */
+    @NotNull
+    public synchronized List<RegenerationProcess> values() {
+        List<RegenerationProcess> values = new ArrayList<>(size);
+        forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,239 @@
+package nl.aurorion.blockregen.regeneration;
+
+import lombok.Getter;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts loaded processes on the main thread in chunk-sized slices under a per-tick time budget.
+ * <p>
+ * Processes waiting to be restored can be looked up by location and are started right away when something touches
+ * them, so block breaks behave the same during the restore. Main thread only.
+ */
+@Log
+public class ProcessRestorer implements Runnable {
+
+    // Log the progress at most this often.
+    private static final long PROGRESS_INTERVAL = 5000L;
+
+    private final BlockRegenPlugin plugin;
+
+    // Processes of one chunk each, restored in the order they were loaded.
+    private final Deque<List<RegenerationProcess>> slices = new ArrayDeque<>();
+
+    private final Map<SimpleLocation, RegenerationProcess> pending = new HashMap<>();
+
+    // Run once all the processes of the world are restored.
+    private final Map<String, Runnable> callbacks = new LinkedHashMap<>();
+
+    private final Map<String, Integer> remaining = new HashMap<>();
+
+    private BukkitTask task;
+
+    // <= 0 => unlimited
+    private long maxNanosPerTick = 5_000_000L;
+
+    // Time the processes of the world were loaded at, the wait is subtracted from their time left when they start.
+    private final Map<String, Long> loadedAt = new HashMap<>();
+
+    @Getter
+    private int total = 0;
+
+    @Getter
+    private int restored = 0;
+
+    private long startedAt;
+
+    private long lastProgress;
+
+    public ProcessRestorer(BlockRegenPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void load() {
+        this.maxNanosPerTick = (long) (plugin.getConfig().getDouble("Storage.Restore-Milliseconds-Per-Tick", 5) * 1_000_000L);
+    }
+
+    /**
+     * Queue the converted processes of the world to be started. The callback runs once all of them are.
+     */
+    public void restore(@NotNull String worldName, @NotNull List<RegenerationProcess> processes, @Nullable Runnable callback) {
+        // Group by chunk, the replacements of one chunk are applied together.
+        Map<Long, List<RegenerationProcess>> byChunk = new LinkedHashMap<>();
+        int count = 0;
+        for (RegenerationProcess process : processes) {
+            SimpleLocation location = process.getLocation();
+            if (pending.putIfAbsent(location, process) != null) {
+                continue;
+            }
+            byChunk.computeIfAbsent(ProcessIndex.chunkKey(location.getX() >> 4, location.getZ() >> 4), k -> new ArrayList<>()).add(process);
+            count++;
+        }
+
+        if (callback != null) {
+            callbacks.put(worldName, callback);
+        }
+
+        remaining.merge(worldName, count, Integer::sum);
+        loadedAt.putIfAbsent(worldName, System.currentTimeMillis());
+        slices.addAll(byChunk.values());
+
+        if (task == null) {
+            this.total = 0;
+            this.restored = 0;
+            this.startedAt = System.currentTimeMillis();
+            this.lastProgress = startedAt;
+            load();
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+        }
+        this.total += count;
+
+        if (count > 0) {
+            log.info("Restoring " + count + " regeneration process(es) in " + worldName + "...");
+        }
+
+        // Nothing to restore, finish right away.
+        finishWorld(worldName);
+    }
+
+    public boolean isRestoring() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Start the process at the location now if it's waiting to be restored. Return the started process or null when
+     * there's none or when called off the main thread.
+     */
+    @Nullable
+    public RegenerationProcess restoreNow(@NotNull String worldName, int x, int y, int z) {
+        if (!Bukkit.isPrimaryThread() || pending.isEmpty()) {
+            return null;
+        }
+
+        RegenerationProcess process = pending.get(new SimpleLocation(worldName, x, y, z));
+        if (process == null) {
+            return null;
+        }
+
+        start(process);
+        return process;
+    }
+
+    @NotNull
+    public Collection<RegenerationProcess> getPending() {
+        return Collections.unmodifiableCollection(pending.values());
+    }
+
+    /**
+     * Return detached snapshots of the processes in the world not restored yet, for persisting.
+     */
+    @NotNull
+    public List<RegenerationProcess> snapshot(@NotNull String worldName) {
+        List<RegenerationProcess> snapshot = new ArrayList<>();
+        for (RegenerationProcess process : pending.values()) {
+            if (worldName.equals(process.getLocation().getWorld())) {
+                snapshot.add(process.snapshot());
+            }
+        }
+        return snapshot;
+    }
+
+    private void start(RegenerationProcess process) {
+        if (pending.remove(process.getLocation()) == null) {
+            return;
+        }
+
+        String worldName = process.getLocation().getWorld();
+
+        // Don't make up for the time spent waiting in here.
+        long timeLeft = process.getTimeLeft();
+        if (timeLeft > 0) {
+            long waited = System.currentTimeMillis() - loadedAt.getOrDefault(worldName, System.currentTimeMillis());
+            process.setTimeLeft(Math.max(0, timeLeft - waited));
+        }
+
+        process.start();
+        restored++;
+
+        remaining.merge(worldName, -1, Integer::sum);
+        finishWorld(worldName);
+    }
+
+    private void finishWorld(String worldName) {
+        Integer left = remaining.get(worldName);
+        if (left == null || left > 0) {
+            return;
+        }
+
+        remaining.remove(worldName);
+        loadedAt.remove(worldName);
+        Runnable callback = callbacks.remove(worldName);
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+
+        while (!slices.isEmpty()) {
+            for (RegenerationProcess process : slices.poll()) {
+                start(process);
+            }
+
+            if (maxNanosPerTick > 0 && System.nanoTime() - start >= maxNanosPerTick) {
+                break;
+            }
+        }
+
+        // Apply the replacements of this tick at once.
+        plugin.getRegenerationManager().getMutationQueue().flush();
+
+        long now = System.currentTimeMillis();
+        if (slices.isEmpty()) {
+            if (restored > 0) {
+                log.info(String.format("Restored %d regeneration process(es) in %.1fs.", restored, (now - startedAt) / 1000D));
+            }
+            stop();
+        } else if (now - lastProgress >= PROGRESS_INTERVAL) {
+            lastProgress = now;
+            log.info(String.format("Restoring regeneration processes... %d/%d (%d%%)", restored, total, total == 0 ? 100 : restored * 100 / total));
+        }
+    }
+
+    private void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Drop everything not restored yet.
+     */
+    public void clear() {
+        stop();
+        slices.clear();
+        pending.clear();
+        callbacks.clear();
+        remaining.clear();
+        loadedAt.clear();
+    }
+}
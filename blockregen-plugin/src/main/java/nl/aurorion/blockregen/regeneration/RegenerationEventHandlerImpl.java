@@ -87,7 +87,7 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
         World world = block.getWorld();
 
         boolean useRegions = plugin.getConfig().getBoolean("Use-Regions", false);
-        RegenerationArea area = useRegions ? plugin.getRegionManager().getArea(block) : null;
+        RegenerationArea area = useRegions ? plugin.getRegionManager().getArea(world, block.getX(), block.getY(), block.getZ()) : null;
 
         boolean isInWorld = plugin.getConfig().getStringList("Worlds-Enabled").contains(world.getName());
         boolean isInArea = area != null;
@@ -154,9 +154,13 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
             return;
         }
 
+        // Read the tool once, copied for the async rewards.
+        ItemStack heldItem = plugin.getVersionManager().getMethods().getItemInMainHand(player);
+        ItemStack tool = heldItem == null ? null : heldItem.clone();
+
         Context ctx = Context.empty()
                 .with("player", player)
-                .with("tool", plugin.getVersionManager().getMethods().getItemInMainHand(player))
+                .with("tool", tool)
                 .with("block", block);
 
         // Check advanced conditions
@@ -189,9 +193,12 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
         int vanillaExperience = eventControl.getDefaultExperience();
         eventControl.cancelDrops();
 
+        Pair<String, BlockRegenMaterial> result = plugin.getMaterialManager().getMaterial(block);
+        BreakContext context = new BreakContext(block, player, tool, area, preset, result == null ? null : result.getSecond(), vanillaExperience);
+
         // Multiblock vegetation - sugarcane, cacti, bamboo
         if (Blocks.isMultiblockCrop(plugin, block) && preset.isHandleCrops()) {
-            handleMultiblockCrop(block, player, preset, area, vanillaExperience);
+            handleMultiblockCrop(context);
             return;
         }
 
@@ -208,23 +215,30 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
 
             if (Blocks.isMultiblockCrop(aboveType)) {
                 // Multiblock crops (cactus, sugarcane,...)
-                handleMultiblockCrop(above, player, abovePreset, area, vanillaExperience);
+                handleMultiblockCrop(context.relative(above, abovePreset, aboveMaterial, vanillaExperience));
             } else if (XBlock.isCrop(aboveType) || Blocks.reliesOnBlockBelow(aboveType)) {
                 // Single crops (wheat, carrots,...)
                 log.fine(() -> "Handling block above...");
 
-                List<ItemStack> vanillaDrops = new ArrayList<>(above.getDrops(plugin.getVersionManager().getMethods().getItemInMainHand(player)));
+                List<ItemStack> vanillaDrops = new ArrayList<>(above.getDrops(tool));
 
                 RegenerationProcess process = plugin.getRegenerationManager().createProcess(above, aboveMaterial, abovePreset, area);
                 process.start();
 
                 // Note: none of the blocks seem to drop experience when broken, should be safe to assume 0
-                handleRewards(above.getState(), abovePreset, player, vanillaDrops, 0);
+                handleRewards(above.getState(), context.relative(above, abovePreset, aboveMaterial, 0), vanillaDrops);
             }
         }
 
-        RegenerationProcess process = plugin.getRegenerationManager().createProcess(block, preset, area);
-        handleBreak(process, preset, block, player, vanillaExperience);
+        handleBreak(createProcess(context), context);
+    }
+
+    // Reuse the material resolved for the context.
+    private RegenerationProcess createProcess(BreakContext context) {
+        if (context.getMaterial() == null) {
+            return plugin.getRegenerationManager().createProcess(context.getBlock(), context.getPreset(), context.getArea());
+        }
+        return plugin.getRegenerationManager().createProcess(context.getBlock(), context.getMaterial(), context.getPreset(), context.getArea());
     }
 
     // Check for supported protection plugins' regions and settings.
@@ -285,10 +299,14 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
                 && player.getGameMode() == GameMode.CREATIVE);
     }
 
-    private void handleMultiblockCrop(Block block, Player player, BlockPreset preset, @Nullable RegenerationArea area, int vanillaExp) {
+    private void handleMultiblockCrop(BreakContext context) {
+        Block block = context.getBlock();
+        BlockPreset preset = context.getPreset();
+        RegenerationArea area = context.getArea();
+
         boolean regenerateWhole = Blocks.shouldForceRegenerateWhole(plugin, block) || preset.isRegenerateWhole();
 
-        handleMultiblockAbove(block, player, above -> Blocks.isMultiblockCrop(plugin, above), (b, abovePreset) -> {
+        handleMultiblockAbove(block, context, above -> Blocks.isMultiblockCrop(plugin, above), (b, abovePreset) -> {
             if (regenerateWhole && abovePreset != null && abovePreset.isHandleCrops()) {
                 RegenerationProcess process = plugin.getRegenerationManager().createProcess(b, abovePreset, area);
                 process.start();
@@ -296,7 +314,7 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
                 // Just destroy...
                 b.setType(Material.AIR);
             }
-        }, area);
+        });
 
         Block base;
         try {
@@ -315,9 +333,9 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
         // Only start regeneration when the most bottom block is broken.
         RegenerationProcess process = null;
         if (block == base || regenerateWhole) {
-            process = plugin.getRegenerationManager().createProcess(block, preset, area);
+            process = createProcess(context);
         }
-        handleBreak(process, preset, block, player, vanillaExp);
+        handleBreak(process, context);
     }
 
     private Block findBase(Block block) {
@@ -342,33 +360,34 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
         return findBase(below);
     }
 
-    private void handleMultiblockAbove(Block block, Player player, Predicate<Block> filter, BiConsumer<Block, BlockPreset> startProcess, RegenerationArea area) {
+    private void handleMultiblockAbove(Block block, BreakContext context, Predicate<Block> filter, BiConsumer<Block, BlockPreset> startProcess) {
         Block above = block.getRelative(BlockFace.UP);
 
         // break the blocks manually, handle them separately.
         if (filter.test(above)) {
 
             // recurse from top to bottom
-            handleMultiblockAbove(above, player, filter, startProcess, area);
+            handleMultiblockAbove(above, context, filter, startProcess);
 
-            BlockPreset abovePreset = plugin.getPresetManager().getPreset(above, area);
+            BlockPreset abovePreset = plugin.getPresetManager().getPreset(above, context.getArea());
 
             if (abovePreset != null) {
-                List<ItemStack> vanillaDrops = new ArrayList<>(block.getDrops(plugin.getVersionManager().getMethods().getItemInMainHand(player)));
+                List<ItemStack> vanillaDrops = new ArrayList<>(block.getDrops(context.getTool()));
 
                 // Needs to be started here due to replacement.
                 startProcess.accept(above, abovePreset);
 
                 // Note: none of the blocks seem to drop experience when broken, should be safe to assume 0
-                handleRewards(above.getState(), abovePreset, player, vanillaDrops, 0);
+                handleRewards(above.getState(), context.relative(above, abovePreset, null, 0), vanillaDrops);
             }
         }
     }
 
-    private void handleBreak(@Nullable RegenerationProcess process, BlockPreset preset, Block block, Player player, int vanillaExperience) {
+    private void handleBreak(@Nullable RegenerationProcess process, BreakContext context) {
+        Block block = context.getBlock();
         BlockState state = block.getState();
 
-        List<ItemStack> vanillaDrops = new ArrayList<>(block.getDrops(plugin.getVersionManager().getMethods().getItemInMainHand(player)));
+        List<ItemStack> vanillaDrops = new ArrayList<>(block.getDrops(context.getTool()));
 
         // Cancels item drops below 1.8.
         if (BukkitVersions.isCurrentBelow("1.8", true)) {
@@ -381,18 +400,21 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
             process.start();
         }
 
-        handleRewards(state, preset, player, vanillaDrops, vanillaExperience);
+        handleRewards(state, context, vanillaDrops);
     }
 
-    private void handleRewards(BlockState state, BlockPreset preset, Player player, List<ItemStack> vanillaDrops, int vanillaExperience) {
+    private void handleRewards(BlockState state, BreakContext breakContext, List<ItemStack> vanillaDrops) {
         Block block = state.getBlock();
+        BlockPreset preset = breakContext.getPreset();
+        Player player = breakContext.getPlayer();
+        ItemStack tool = breakContext.getTool();
 
         Function<String, String> parser = (str) -> Text.parse(str, player, block);
 
         // Conditions
         Context context = Context.empty()
                 .with("player", player)
-                .with("tool", plugin.getVersionManager().getMethods().getItemInMainHand(player))
+                .with("tool", tool)
                 .with("block", block)
                 .with("parser", parser);
 
@@ -408,7 +430,7 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
                     drops.put(drop, preset.isDropNaturally());
                 }
 
-                experience.addAndGet(vanillaExperience);
+                experience.addAndGet(breakContext.getVanillaExperience());
             } else {
                 for (DropItem drop : preset.getRewards().getDrops()) {
                     log.fine(drop.getCondition() + " " + drop.getCondition().matches(context));
@@ -423,9 +445,7 @@ public class RegenerationEventHandlerImpl implements RegenerationEventHandler {
                     }
 
                     if (drop.isApplyFortune()) {
-                        itemStack.setAmount(Items.applyFortune(block.getType(),
-                                plugin.getVersionManager().getMethods().getItemInMainHand(player))
-                                + itemStack.getAmount());
+                        itemStack.setAmount(Items.applyFortune(block.getType(), tool) + itemStack.getAmount());
                     }
 
                     drops.put(itemStack, drop.isDropNaturally());
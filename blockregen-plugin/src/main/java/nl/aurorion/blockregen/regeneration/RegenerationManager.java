@@ -7,21 +7,31 @@ import nl.aurorion.blockregen.BlockRegenPlugin;
 import nl.aurorion.blockregen.Pair;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
 import nl.aurorion.blockregen.preset.BlockPreset;
+import nl.aurorion.blockregen.regeneration.storage.BinaryProcessFormat;
+import nl.aurorion.blockregen.regeneration.storage.ChunkProcessStorage;
+import nl.aurorion.blockregen.regeneration.storage.JsonProcessFormat;
+import nl.aurorion.blockregen.regeneration.storage.ProcessFormat;
+import nl.aurorion.blockregen.regeneration.storage.ProcessStorage;
+import nl.aurorion.blockregen.regeneration.storage.ShardedProcessStorage;
+import nl.aurorion.blockregen.regeneration.storage.SqlProcessStorage;
 import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
 import nl.aurorion.blockregen.region.struct.RegenerationArea;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 
 @Log
@@ -29,13 +39,42 @@ public class RegenerationManager {
 
     private final BlockRegenPlugin plugin;
 
-    private final Map<Block, RegenerationProcess> cache = new ConcurrentHashMap<>();
+    // Runs the task on the next tick.
+    private final Executor mainThread;
+
+    private final ProcessIndex cache = new ProcessIndex();
 
     @Getter
     private AutoSaveTask autoSaveTask;
 
     @Getter
-    private boolean retry = false;
+    private final RegenerationScheduler scheduler;
+
+    @Getter
+    private final BlockMutationQueue mutationQueue;
+
+    @Getter
+    private final ProcessRestorer restorer;
+
+    // Processes of unloaded chunks, when enabled.
+    @Getter
+    private final CompactProcessStore compactStore = new CompactProcessStore();
+
+    private boolean compactUnloaded = false;
+
+    @Getter
+    private ProcessStorage storage;
+
+    private BukkitTask journalTask;
+
+    // Worlds are loaded once the presets are.
+    private boolean loadingWorlds = false;
+
+    // Regenerations postponed until their chunk loads and regenerations applied after it did.
+    @Getter
+    private volatile long deferredCount = 0;
+    @Getter
+    private volatile long caughtUpCount = 0;
 
     private final Set<UUID> bypass = new HashSet<>();
 
@@ -43,6 +82,10 @@ public class RegenerationManager {
 
     public RegenerationManager(BlockRegenPlugin plugin) {
         this.plugin = plugin;
+        this.mainThread = runnable -> Bukkit.getScheduler().runTask(plugin, runnable);
+        this.scheduler = new RegenerationScheduler(plugin);
+        this.mutationQueue = new BlockMutationQueue(plugin);
+        this.restorer = new ProcessRestorer(plugin);
     }
 
     // --- Bypass
@@ -121,18 +164,49 @@ public class RegenerationManager {
     public void registerProcess(@NotNull RegenerationProcess process) {
         Objects.requireNonNull(process);
 
-        if (this.getProcess(process.getBlock()) != null) {
+        if (!cache.add(process)) {
             log.fine(() -> String.format("Cache already contains process %s", process.getId()));
             return;
         }
 
-        cache.put(process.getBlock(), process);
+        storage.register(process);
+
         log.fine(() -> "Registered regeneration process " + process);
     }
 
     @Nullable
     public RegenerationProcess getProcess(@NotNull Block block) {
-        return this.cache.get(block);
+        return getProcess(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+    }
+
+    @Nullable
+    public RegenerationProcess getProcess(@NotNull String worldName, int x, int y, int z) {
+        RegenerationProcess process = this.cache.get(worldName, x, y, z);
+        if (process != null) {
+            return process;
+        }
+
+        // Not restored after startup yet, start it now so it's handled like any other.
+        process = restorer.restoreNow(worldName, x, y, z);
+        if (process != null || compactStore.isEmpty()) {
+            return process;
+        }
+
+        process = compactStore.get(worldName, x, y, z);
+        if (process == null) {
+            return null;
+        }
+
+        // The chunk is loaded after all, start its processes.
+        World world = Bukkit.getWorld(worldName);
+        if (world != null && Bukkit.isPrimaryThread() && world.isChunkLoaded(x >> 4, z >> 4)) {
+            expand(worldName, x >> 4, z >> 4);
+            return this.cache.get(worldName, x, y, z);
+        }
+
+        // Detached view, the chunk is not loaded.
+        process.convertPreset();
+        return process;
     }
 
     public boolean isRegenerating(@NotNull Block block) {
@@ -141,7 +215,10 @@ public class RegenerationManager {
     }
 
     public void removeProcess(RegenerationProcess process) {
-        if (cache.remove(process.getBlock()) != null) {
+        SimpleLocation location = process.getLocation();
+        if (cache.remove(location.getWorld(), location.getX(), location.getY(), location.getZ()) != null
+                || compactStore.remove(location.getWorld(), location.getX(), location.getY(), location.getZ())) {
+            storage.remove(location);
             log.fine(() -> String.format("Removed process from cache: %s", process));
         } else {
             log.fine(() -> String.format("Process %s not found, not removed.", process));
@@ -149,7 +226,12 @@ public class RegenerationManager {
     }
 
     public void removeProcess(@NotNull Block block) {
-        cache.remove(block);
+        RegenerationProcess removed = cache.remove(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+        if (removed != null) {
+            storage.remove(removed.getLocation());
+        } else if (compactStore.remove(block.getWorld().getName(), block.getX(), block.getY(), block.getZ())) {
+            storage.remove(new SimpleLocation(block));
+        }
     }
 
     public void startAutoSave() {
@@ -172,126 +254,358 @@ public class RegenerationManager {
     // Revert blocks before disabling
     public void revertAll() {
         cache.values().forEach(RegenerationProcess::revertBlock);
-    }
+        restorer.getPending().forEach(RegenerationProcess::revertBlock);
 
-    // Can only be called from the main thread
-    private void purgeExpired() {
-        // Clear invalid processes
-        for (RegenerationProcess process : cache.values()) {
-            if (process.getTimeLeft() < 0 && process.shouldRegenerate()) {
-                if (Bukkit.isPrimaryThread()) {
-                    process.regenerateBlock();
-                } else {
-                    Bukkit.getScheduler().runTask(plugin, process::regenerateBlock);
-                }
+        for (RegenerationProcess process : compactStore.values()) {
+            if (process.convertLocation()) {
+                process.revertBlock();
             }
         }
     }
 
+    /**
+     * Queue the process to regenerate on the main thread within the per-tick regeneration budget.
+     */
+    public void queueRegeneration(@NotNull RegenerationProcess process) {
+        scheduler.enqueue(process);
+    }
+
+    /**
+     * Postpone the regeneration of a process in an unloaded chunk until the chunk loads.
+     */
+    public void deferRegeneration(@NotNull RegenerationProcess process) {
+        if (cache.markOverdue(process)) {
+            deferredCount++;
+            log.fine(() -> "Deferred regeneration of " + process + " until the chunk loads.");
+        }
+    }
+
+    /**
+     * Queue the regenerations that came due while the chunk was unloaded.
+     */
+    public void catchUp(@NotNull String worldName, int chunkX, int chunkZ) {
+        List<RegenerationProcess> overdue = cache.takeOverdue(worldName, chunkX, chunkZ);
+        if (overdue.isEmpty()) {
+            return;
+        }
+
+        caughtUpCount += overdue.size();
+        overdue.forEach(scheduler::enqueue);
+        log.fine(() -> String.format("Catching up on %d regeneration(s) in chunk %d, %d in %s.", overdue.size(), chunkX, chunkZ, worldName));
+    }
+
+    public int getOverdueCount() {
+        return cache.getOverdueCount();
+    }
+
+    /**
+     * Has to be called after the regeneration time of a registered process changes.
+     */
+    public void updateExpiry(@NotNull RegenerationProcess process) {
+        if (cache.updateExpiry(process)) {
+            storage.update(process);
+        }
+    }
+
+    // Queue processes that should've regenerated already.
+    private void purgeExpired() {
+        cache.getDue(System.currentTimeMillis()).forEach(this::queueRegeneration);
+    }
+
     public void save() {
         save(false);
     }
 
+    /**
+     * Persist the processes of the loaded worlds. Only worlds that changed get written. With the journal enabled only
+     * the changes since the last save are written, unless the journal grew over the compaction threshold or the save
+     * is synchronous (shutdown).
+     */
     public void save(boolean sync) {
-        final File dataFile = new File(plugin.getDataFolder(), "/Data.json");
+        // TODO: Shouldn't be required
+        purgeExpired();
 
-        if (cache.isEmpty()) {
-            log.fine(() -> "No processes to save.");
-            try {
-                Files.write(dataFile.toPath(), "[]\n".getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-            } catch (IOException e) {
-                log.severe(() -> "Failed to create empty Data.json.");
+        CompletableFuture<Void> future = storage.save(this::snapshot, sync).exceptionally(e -> {
+            log.log(Level.SEVERE, "Could not save processes: " + e.getMessage(), e);
+            return null;
+        });
+
+        if (sync) {
+            future.join();
+        }
+    }
+
+    // Processes still waiting to be restored are persisted as well.
+    private List<RegenerationProcess> snapshot(String worldName) {
+        List<RegenerationProcess> snapshot = cache.snapshot(worldName);
+        if (restorer.isRestoring()) {
+            snapshot.addAll(restorer.snapshot(worldName));
+        }
+        snapshot.addAll(compactStore.snapshot(worldName));
+        return snapshot;
+    }
 
-                // Try to force delete.
-                //noinspection ResultOfMethodCallIgnored
-                dataFile.delete();
+    private void loadStorage() {
+        String formatName = plugin.getConfig().getString("Storage.Format", "JSON");
+
+        ProcessFormat format;
+        if ("BINARY".equalsIgnoreCase(formatName)) {
+            format = new BinaryProcessFormat(plugin);
+        } else {
+            if (!"JSON".equalsIgnoreCase(formatName)) {
+                log.warning("Unknown storage format " + formatName + ", using JSON.");
             }
-            return;
+            format = new JsonProcessFormat(plugin);
         }
 
-        cache.values().forEach(process -> process.setTimeLeft(process.getRegenerationTime() - System.currentTimeMillis()));
+        int backups = Math.max(0, plugin.getConfig().getInt("Storage.Backups", 3));
+        int threads = Math.max(1, plugin.getConfig().getInt("Storage.Threads", 2));
 
-        // TODO: Shouldn't be required
-        purgeExpired();
+        boolean journaling = plugin.getConfig().getBoolean("Storage.Journal.Enabled", true);
+        int compactThreshold = plugin.getConfig().getInt("Storage.Journal.Compact-Threshold", 50000);
 
-        final List<RegenerationProcess> finalCache = new ArrayList<>(cache.values());
+        String type = plugin.getConfig().getString("Storage.Type", "FILE");
 
-        CompletableFuture<Void> future = plugin.getGsonHelper().save(finalCache, dataFile.toPath())
-                .exceptionally(e -> {
-                    log.log(Level.SEVERE, "Could not save processes: " + e.getMessage(), e);
-                    return null;
-                });
+        File folder = new File(plugin.getDataFolder(), "Data");
 
-        if (sync) {
-            future.join();
+        this.storage = null;
+        if ("CHUNK".equalsIgnoreCase(type)) {
+            if (ChunkProcessStorage.isSupported()) {
+                // The files are only read to import them into the chunks.
+                this.storage = new ChunkProcessStorage(plugin, new ShardedProcessStorage(plugin, format,
+                        new File(plugin.getDataFolder(), "Data").toPath(), backups, false, compactThreshold, 1));
+            } else {
+                log.warning("Chunk storage requires 1.16.3 or newer, falling back to file storage.");
+            }
+        } else if ("SQLITE".equalsIgnoreCase(type)) {
+            SqlProcessStorage database = new SqlProcessStorage(plugin, new File(plugin.getDataFolder(), "Data.db").toPath());
+            try {
+                database.open();
+                this.storage = database;
+            } catch (SQLException e) {
+                log.log(Level.SEVERE, "Could not open the process database, falling back to file storage: " + e.getMessage(), e);
+
+                // The files were moved aside when they got imported into the database, continue from them.
+                File migrated = new File(plugin.getDataFolder(), "Data.migrated");
+                if (!folder.exists() && migrated.isDirectory()) {
+                    log.warning("Using the process files from before the database import, changes made since then are only in Data.db.");
+                    folder = migrated;
+                }
+            }
+        } else if (!"FILE".equalsIgnoreCase(type)) {
+            log.warning("Unknown storage type " + type + ", using FILE.");
+        }
+
+        if (this.storage == null) {
+            this.storage = new ShardedProcessStorage(plugin, format, folder.toPath(), backups, journaling, compactThreshold, threads);
         }
 
-        log.fine(() -> "Saved " + finalCache.size() + " regeneration processes..");
+        // The chunks keep their processes themselves.
+        this.compactUnloaded = !(this.storage instanceof ChunkProcessStorage) && plugin.getConfig().getBoolean("Storage.Compact-Unloaded-Chunks", false);
+
+        // Hand the changes over to the writers regularly, not only on auto-save.
+        if (this.storage instanceof ChunkProcessStorage) {
+            return;
+        }
+
+        if (journaling || this.storage instanceof SqlProcessStorage) {
+            int flushInterval = Math.max(1, plugin.getConfig().getInt("Storage.Journal.Flush-Interval", 1));
+            ProcessStorage storage = this.storage;
+            this.journalTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, storage::flush, flushInterval * 20L, flushInterval * 20L);
+        }
+    }
+
+    /**
+     * Stop the storage writers. Call after the final save.
+     */
+    public void closeStorage() {
+        if (journalTask != null) {
+            journalTask.cancel();
+            journalTask = null;
+        }
+
+        storage.close();
     }
 
     private boolean convertProcess(@NotNull RegenerationProcess process) {
         return process.convertLocation() && process.convertPreset();
     }
 
-    private CompletableFuture<List<RegenerationProcess>> loadFromStorage() {
-        return plugin.getGsonHelper().loadListAsync(plugin.getDataFolder().getPath() + "/Data.json", RegenerationProcess.class);
+    public void load() {
+        scheduler.start();
+        restorer.clear();
+        cache.clear();
+        compactStore.clear();
+        this.loadingWorlds = false;
+
+        loadStorage();
+        storage.migrateLegacy(plugin.getDataFolder().toPath());
+
+        // Presets provided by other plugins are not there yet, the worlds get loaded in #reattemptLoad().
+        if (plugin.getPresetManager().isRetry()) {
+            log.warning("Some presets couldn't be loaded yet, loading processes after a complete server load...");
+            return;
+        }
+
+        loadWorlds();
     }
 
-    public void load() {
-        loadFromStorage().thenAcceptAsync(loadedProcesses ->
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    cache.clear();
-
-                    if (loadedProcesses == null) {
-                        return;
-                    }
-
-                    if (plugin.getPresetManager().isRetry() && this.retry) {
-                        log.warning("Some process couldn't be loaded, but might be salvageable. Trying again after a complete server load...");
-                    } else {
-                        // Start em
-                        for (RegenerationProcess loadedProcess : loadedProcesses) {
-                            if (loadedProcess != null && convertProcess(loadedProcess)) {
-                                loadedProcess.start();
-                            }
-                        }
-                        log.info("Loaded " + this.cache.size() + " regeneration process(es)...");
-                    }
-                })).exceptionally(e -> {
-            log.log(Level.SEVERE, "Could not load processes: " + e.getMessage(), e);
-            return null;
-        });
+    // Load the shards of all the loaded worlds.
+    private void loadWorlds() {
+        this.loadingWorlds = true;
+
+        for (World world : Bukkit.getWorlds()) {
+            loadWorld(world.getName());
+        }
     }
 
-    public void reattemptLoad() {
-        if (!retry) {
+    /**
+     * Load and start the processes of the world, if not loaded yet.
+     */
+    public void loadWorld(@NotNull String worldName) {
+        if (!loadingWorlds || storage.isLoaded(worldName)) {
             return;
         }
 
-        this.retry = false;
-
-        loadFromStorage().thenAcceptAsync(loadedProcesses -> {
-            cache.clear();
-
-            if (loadedProcesses == null) {
-                throw new RuntimeException("Could not load processes from storage.");
-            }
+        // Presets and worlds are looked up on the main thread, the processes are started in slices by the restorer.
+        storage.load(worldName).thenApplyAsync(loadedProcesses -> {
+            List<RegenerationProcess> converted = new ArrayList<>(loadedProcesses.size());
 
             // We can throw away processes that are not valid. Should do no harm.
             for (RegenerationProcess loadedProcess : loadedProcesses) {
                 if (loadedProcess != null && convertProcess(loadedProcess)) {
-                    loadedProcess.start();
+                    converted.add(loadedProcess);
                 }
             }
-            log.info("Loaded " + this.cache.size() + " regeneration process(es)...");
+            return converted;
+        }, mainThread).thenAccept(converted -> {
+            if (converted.isEmpty()) {
+                return;
+            }
+
+            // Starting the loaded processes journals them again, squash it all into a fresh snapshot.
+            restorer.restore(worldName, converted, () -> storage.compact(worldName, () -> snapshot(worldName)).exceptionally(e -> {
+                log.log(Level.SEVERE, "Could not compact the processes of " + worldName + ": " + e.getMessage(), e);
+                return null;
+            }));
         }).exceptionally(e -> {
-            log.log(Level.SEVERE, "Could not load processes: " + e.getMessage(), e);
+            log.log(Level.SEVERE, "Could not load processes of " + worldName + ": " + e.getMessage(), e);
             return null;
         });
     }
 
+    /**
+     * Start the processes stored in the chunk. Only used with the chunk storage.
+     */
+    public void loadChunk(@NotNull Chunk chunk) {
+        if (!compactStore.isEmpty()) {
+            expand(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+        }
+
+        if (!(storage instanceof ChunkProcessStorage) || !storage.isLoaded(chunk.getWorld().getName())) {
+            return;
+        }
+
+        String worldName = chunk.getWorld().getName();
+        ChunkProcessStorage chunkStorage = (ChunkProcessStorage) storage;
+
+        // Changes made while the chunk was unloaded go in before reading it, the stored processes are stale.
+        if (chunkStorage.isDirty(chunk)) {
+            chunkStorage.writeChunk(chunk, cache.snapshot(worldName, chunk.getX(), chunk.getZ()));
+        }
+
+        int loaded = 0;
+        for (RegenerationProcess process : chunkStorage.readChunk(chunk)) {
+            SimpleLocation location = process.getLocation();
+
+            // Still running from before the chunk unloaded.
+            if (getProcess(worldName, location.getX(), location.getY(), location.getZ()) != null) {
+                continue;
+            }
+
+            if (convertProcess(process)) {
+                process.start();
+                loaded++;
+            }
+        }
+
+        if (loaded > 0) {
+            int count = loaded;
+            log.fine(() -> String.format("Loaded %d regeneration process(es) from chunk %d, %d in %s.", count, chunk.getX(), chunk.getZ(), worldName));
+        }
+    }
+
+    /**
+     * Write the processes of the chunk into it before it's saved. Only used with the chunk storage.
+     */
+    public void unloadChunk(@NotNull Chunk chunk) {
+        if (compactUnloaded) {
+            compact(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+            return;
+        }
+
+        if (!(storage instanceof ChunkProcessStorage)) {
+            return;
+        }
+
+        ChunkProcessStorage chunkStorage = (ChunkProcessStorage) storage;
+        if (chunkStorage.isDirty(chunk)) {
+            chunkStorage.writeChunk(chunk, cache.snapshot(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()));
+        }
+    }
+
+    // Pack the processes of the chunk, they're started again when it loads. Queued regenerations are left alone.
+    private void compact(String worldName, int chunkX, int chunkZ) {
+        List<RegenerationProcess> processes = cache.takeChunk(worldName, chunkX, chunkZ, process -> !scheduler.isQueued(process));
+        if (processes.isEmpty()) {
+            return;
+        }
+
+        processes.forEach(RegenerationProcess::stop);
+        compactStore.pack(worldName, chunkX, chunkZ, processes);
+        log.fine(() -> String.format("Packed %d regeneration process(es) of chunk %d, %d in %s.", processes.size(), chunkX, chunkZ, worldName));
+    }
+
+    // Start the packed processes of the chunk again.
+    private void expand(String worldName, int chunkX, int chunkZ) {
+        for (RegenerationProcess process : compactStore.unpack(worldName, chunkX, chunkZ)) {
+            if (convertProcess(process)) {
+                process.start();
+            }
+        }
+    }
+
+    public void reattemptLoad() {
+        // Worlds loaded later are picked up by the world listener.
+        loadWorlds();
+    }
+
+    /**
+     * Start the packed processes passing the filter again and return them, they're handled like any other from then on.
+     * The filter gets detached copies with the preset not converted yet.
+     */
+    @NotNull
+    public List<RegenerationProcess> unpack(@NotNull Predicate<RegenerationProcess> filter) {
+        List<RegenerationProcess> started = new ArrayList<>();
+        for (RegenerationProcess process : compactStore.take(filter)) {
+            // Not started when it was due already and got queued right away.
+            if (convertProcess(process)) {
+                process.start();
+                started.add(process);
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Return the running processes. Processes packed in unloaded chunks are not included.
+     */
     @NotNull
     public Collection<RegenerationProcess> getCache() {
         return Collections.unmodifiableCollection(cache.values());
     }
+
+    public int getPackedCount() {
+        return compactStore.size();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+package nl.aurorion.blockregen.regeneration;
+
+import lombok.Getter;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.util.TimingWheel;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Drives all the regeneration timers from a single repeating task instead of one Bukkit task per process.
+ * <p>
+ * Due processes are put into a backlog which is drained each tick up to the configured budget. The block changes are
+ * applied under the same budget.
+ */
+@Log
+public class RegenerationScheduler implements Runnable {
+
+    private final BlockRegenPlugin plugin;
+
+    private final TimingWheel<RegenerationProcess> wheel = new TimingWheel<>();
+
+    // Processes that are due, in the order they became due. Mapped to the time they got queued.
+    private final Map<RegenerationProcess, Long> backlog = new LinkedHashMap<>();
+
+    private BukkitTask task;
+
+    @Getter
+    private boolean running = false;
+
+    // <= 0 => unlimited
+    @Getter
+    private int maxBlocksPerTick = 0;
+
+    // <= 0 => unlimited
+    private long maxNanosPerTick = 0;
+
+    // Don't load chunks to regenerate blocks, wait for them to load instead.
+    @Getter
+    private boolean deferUnloadedChunks = false;
+
+    public RegenerationScheduler(BlockRegenPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void load() {
+        this.maxBlocksPerTick = plugin.getConfig().getInt("Regeneration.Max-Blocks-Per-Tick", 0);
+        this.maxNanosPerTick = (long) (plugin.getConfig().getDouble("Regeneration.Max-Milliseconds-Per-Tick", 0) * 1_000_000L);
+        this.deferUnloadedChunks = plugin.getConfig().getBoolean("Regeneration.Defer-Unloaded-Chunks", false);
+        log.fine(() -> String.format("Regeneration budget: %d block(s), %.2fms per tick.", maxBlocksPerTick, maxNanosPerTick / 1_000_000D));
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+
+        load();
+
+        running = true;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+        log.fine(() -> "Started regeneration scheduler.");
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        running = false;
+    }
+
+    /**
+     * Schedule the process to regenerate after the given amount of ticks. Replaces any previous schedule.
+     * <p>
+     * Can be called from any thread, the process is always regenerated on the main thread.
+     */
+    public synchronized void schedule(@NotNull RegenerationProcess process, long ticks) {
+        cancel(process);
+        process.setTask(wheel.schedule(process, ticks));
+    }
+
+    /**
+     * Queue the process to regenerate as soon as the budget allows.
+     */
+    public synchronized void enqueue(@NotNull RegenerationProcess process) {
+        cancelTimer(process);
+        backlog.putIfAbsent(process, System.currentTimeMillis());
+    }
+
+    /**
+     * Remove the process both from the timers and the backlog.
+     */
+    public synchronized void cancel(@NotNull RegenerationProcess process) {
+        cancelTimer(process);
+        backlog.remove(process);
+    }
+
+    public synchronized boolean isQueued(@NotNull RegenerationProcess process) {
+        return backlog.containsKey(process);
+    }
+
+    public synchronized int size() {
+        return wheel.size();
+    }
+
+    public synchronized int getBacklogSize() {
+        return backlog.size();
+    }
+
+    /**
+     * Return the time in milliseconds the oldest process spent in the backlog, 0 if empty.
+     */
+    public synchronized long getBacklogAge() {
+        if (backlog.isEmpty()) {
+            return 0;
+        }
+        return System.currentTimeMillis() - backlog.values().iterator().next();
+    }
+
+    public synchronized void clear() {
+        wheel.clear();
+        backlog.clear();
+    }
+
+    private void cancelTimer(RegenerationProcess process) {
+        TimingWheel.Entry<RegenerationProcess> entry = process.getTask();
+        if (entry != null) {
+            wheel.cancel(entry);
+            process.setTask(null);
+        }
+    }
+
+    @Override
+    public synchronized void run() {
+        long start = System.nanoTime();
+
+        wheel.advance(process -> {
+            process.setTask(null);
+            backlog.putIfAbsent(process, System.currentTimeMillis());
+        });
+
+        BlockMutationQueue mutations = plugin.getRegenerationManager().getMutationQueue();
+
+        // Block changes carried over from the previous tick go first, regenerate more once they're applied.
+        if (!mutations.hasCarried()) {
+            drain(start);
+        }
+
+        // Apply the block changes of this tick at once, within what's left of the budget.
+        long nanosLeft = maxNanosPerTick > 0 ? Math.max(1, maxNanosPerTick - (System.nanoTime() - start)) : 0;
+        mutations.flush(maxBlocksPerTick, nanosLeft);
+    }
+
+    private void drain(long start) {
+        if (backlog.isEmpty()) {
+            return;
+        }
+
+        int count = 0;
+
+        while (!backlog.isEmpty()) {
+            if (maxBlocksPerTick > 0 && count >= maxBlocksPerTick) {
+                break;
+            }
+
+            // Always make some progress.
+            if (maxNanosPerTick > 0 && count > 0 && System.nanoTime() - start >= maxNanosPerTick) {
+                break;
+            }
+
+            // Regeneration can modify the backlog, take the head each time.
+            RegenerationProcess process = backlog.keySet().iterator().next();
+            backlog.remove(process);
+
+            if (deferUnloadedChunks && !process.isChunkLoaded()) {
+                plugin.getRegenerationManager().deferRegeneration(process);
+                continue;
+            }
+
+            count++;
+
+            // Don't let one failing process take down the rest.
+            try {
+                process.regenerate();
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Failed to regenerate process " + process, e);
+            }
+        }
+
+        if (!backlog.isEmpty()) {
+            int regenerated = count;
+            log.fine(() -> String.format("Regenerated %d process(es), %d left in the backlog.", regenerated, backlog.size()));
+        }
+    }
+}
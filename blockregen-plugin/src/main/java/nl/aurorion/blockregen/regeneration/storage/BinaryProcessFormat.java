@@ -0,0 +1,394 @@
+package nl.aurorion.blockregen.regeneration.storage;
+
+import com.cryptomorin.xseries.XMaterial;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import nl.aurorion.blockregen.material.MaterialPool;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.version.api.NodeData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Compact binary snapshot format.
+ * <p>
+ * Layout: magic, version, snapshot time, three dictionaries (strings, node data, materials) and a stream of length-prefixed process
+ * records. Strings repeated across processes (world, region, preset and material names) and the json form of node data
+ * and custom materials are stored once and referenced by index. Coordinates and indices are varints.
+ */
+@Log
+public class BinaryProcessFormat implements ProcessFormat {
+
+    private static final int MAGIC = 0x42525044; // BRPD
+    // 2 - snapshot time in the header
+    private static final int VERSION = 2;
+
+    private final BlockRegenPlugin plugin;
+
+    public BinaryProcessFormat(BlockRegenPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public @NotNull String getExtension() {
+        return ".bin";
+    }
+
+    // Index of values in a dictionary, 0 is reserved for null.
+    private static class Dictionary<T> {
+        private final Map<T, Integer> indices;
+        private final List<String> entries = new ArrayList<>();
+
+        private Dictionary(Map<T, Integer> indices) {
+            this.indices = indices;
+        }
+
+        private int index(@Nullable T value, Function<T, String> encoder) {
+            if (value == null) {
+                return 0;
+            }
+
+            Integer index = indices.get(value);
+            if (index == null) {
+                entries.add(encoder.apply(value));
+                index = entries.size();
+                indices.put(value, index);
+            }
+            return index;
+        }
+    }
+
+    @Override
+    public void write(@NotNull List<RegenerationProcess> processes, long time, @NotNull Path path) throws IOException {
+        ByteBuffer[] buffers = encodeBuffers(processes, time);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encode the processes into a single blob.
+     */
+    public byte[] encode(@NotNull List<RegenerationProcess> processes) {
+        ByteBuffer[] buffers = encodeBuffers(processes, System.currentTimeMillis());
+
+        ByteBuffer output = ByteBuffer.allocate(buffers[0].remaining() + buffers[1].remaining());
+        output.put(buffers[0]);
+        output.put(buffers[1]);
+        return output.array();
+    }
+
+    // Return the header and the records ready for reading.
+    private ByteBuffer[] encodeBuffers(List<RegenerationProcess> processes, long time) {
+        Gson gson = plugin.getGsonHelper().getGson();
+
+        Dictionary<String> strings = new Dictionary<>(new HashMap<>());
+        // Node data and materials are mostly shared instances, fall back to their json when they're not.
+        Dictionary<String> nodeDataJson = new Dictionary<>(new HashMap<>());
+        Dictionary<String> materialJson = new Dictionary<>(new HashMap<>());
+        Map<NodeData, Integer> nodeDataIndices = new IdentityHashMap<>();
+        Map<BlockRegenMaterial, Integer> materialIndices = new IdentityHashMap<>();
+
+        ByteBuffer records = ByteBuffer.allocate(Math.max(64, processes.size() * 48));
+        ByteBuffer record = ByteBuffer.allocate(256);
+
+        int count = 0;
+        for (RegenerationProcess process : processes) {
+            SimpleLocation location = process.getLocation();
+            if (location == null) {
+                continue;
+            }
+
+            record.clear();
+
+            UUID id = process.getId() == null ? new UUID(0, 0) : process.getId();
+            record.putLong(id.getMostSignificantBits());
+            record.putLong(id.getLeastSignificantBits());
+
+            writeVarInt(record, strings.index(location.getWorld(), Function.identity()));
+            writeVarInt(record, zigZag(location.getX()));
+            writeVarInt(record, zigZag(location.getY()));
+            writeVarInt(record, zigZag(location.getZ()));
+
+            writeVarInt(record, strings.index(process.getWorldName(), Function.identity()));
+            writeVarInt(record, strings.index(process.getRegionName(), Function.identity()));
+            writeVarInt(record, strings.index(process.getPresetName(), Function.identity()));
+
+            XMaterial originalMaterial = process.getOriginalMaterialType();
+            writeVarInt(record, strings.index(originalMaterial == null ? null : originalMaterial.name(), Function.identity()));
+
+            NodeData nodeData = process.getOriginalData();
+            writeVarInt(record, nodeData == null ? 0 : nodeDataIndices.computeIfAbsent(nodeData,
+                    data -> nodeDataJson.index(toJson(gson, data, NodeData.class), Function.identity())));
+
+            BlockRegenMaterial material = process.getOriginalCustomMaterial();
+            writeVarInt(record, material == null ? 0 : materialIndices.computeIfAbsent(material,
+                    m -> materialJson.index(toJson(gson, m, BlockRegenMaterial.class), Function.identity())));
+
+            writeVarLong(record, zigZag(process.computeTimeLeft()));
+
+            record.flip();
+            records = ensure(records, record.remaining() + 5);
+            writeVarInt(records, record.remaining());
+            records.put(record);
+            count++;
+        }
+
+        records.flip();
+
+        ByteBuffer header = ByteBuffer.allocate(64);
+        header.putInt(MAGIC);
+        header.put((byte) VERSION);
+        header.putLong(time);
+        header = writeDictionary(header, strings.entries);
+        header = writeDictionary(header, nodeDataJson.entries);
+        header = writeDictionary(header, materialJson.entries);
+        header = ensure(header, 5);
+        writeVarInt(header, count);
+        header.flip();
+
+        return new ByteBuffer[]{header, records};
+    }
+
+    @Override
+    public long read(@NotNull Path path, @NotNull Consumer<RegenerationProcess> consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too big for the reader.");
+            }
+
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // Read it all.
+            }
+            buffer.flip();
+        }
+
+        try {
+            return decode(buffer, consumer);
+        } catch (IOException e) {
+            throw new IOException("Could not read " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decode processes from a blob created by {@link #encode(List)} or read from a file.
+     *
+     * @return Time the snapshot was taken at or -1 if it's not stored.
+     */
+    public long decode(@NotNull ByteBuffer buffer, @NotNull Consumer<RegenerationProcess> consumer) throws IOException {
+        if (buffer.remaining() == 0) {
+            return -1;
+        }
+
+        try {
+            return read(buffer, consumer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | IllegalStateException | NegativeArraySizeException | JsonParseException e) {
+            // Truncated data, lengths or indices out of range, overlong varints and broken dictionary json.
+            throw new IOException("Corrupted process data.", e);
+        }
+    }
+
+    private long read(ByteBuffer buffer, Consumer<RegenerationProcess> consumer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a process file.");
+        }
+
+        int version = buffer.get();
+        if (version > VERSION) {
+            throw new IOException("Unsupported process file version " + version + ", the file was written by a newer version of the plugin.");
+        }
+
+        long time = version >= 2 ? buffer.getLong() : -1;
+
+        Gson gson = plugin.getGsonHelper().getGson();
+
+        List<String> strings = readDictionary(buffer);
+
+        List<String> nodeDataJson = readDictionary(buffer);
+        NodeData[] nodeData = new NodeData[nodeDataJson.size()];
+        for (int i = 0; i < nodeData.length; i++) {
+            nodeData[i] = MaterialPool.intern(gson.fromJson(nodeDataJson.get(i), NodeData.class));
+        }
+
+        List<String> materialJson = readDictionary(buffer);
+        BlockRegenMaterial[] materials = new BlockRegenMaterial[materialJson.size()];
+        for (int i = 0; i < materials.length; i++) {
+            try {
+                materials[i] = MaterialPool.intern(gson.fromJson(materialJson.get(i), BlockRegenMaterial.class));
+            } catch (RuntimeException e) {
+                log.warning("Could not load material " + materialJson.get(i) + ": " + e.getMessage());
+            }
+        }
+
+        int count = readVarInt(buffer);
+        for (int i = 0; i < count; i++) {
+            int length = readVarInt(buffer);
+            int end = buffer.position() + length;
+
+            RegenerationProcess process = new RegenerationProcess();
+            process.setId(new UUID(buffer.getLong(), buffer.getLong()));
+
+            String world = entry(strings, readVarInt(buffer));
+            int x = zagZig(readVarInt(buffer));
+            int y = zagZig(readVarInt(buffer));
+            int z = zagZig(readVarInt(buffer));
+            process.setLocation(new SimpleLocation(world, x, y, z));
+
+            process.setWorldName(entry(strings, readVarInt(buffer)));
+            process.setRegionName(entry(strings, readVarInt(buffer)));
+            process.setPresetName(entry(strings, readVarInt(buffer)));
+
+            String materialName = entry(strings, readVarInt(buffer));
+            process.setOriginalMaterial(materialName == null ? null : XMaterial.matchXMaterial(materialName).orElse(null));
+
+            int nodeDataIndex = readVarInt(buffer);
+            process.setOriginalData(nodeDataIndex == 0 ? null : nodeData[nodeDataIndex - 1]);
+
+            int materialIndex = readVarInt(buffer);
+            process.setOriginalCustomMaterial(materialIndex == 0 ? null : materials[materialIndex - 1]);
+
+            process.setTimeLeft(zagZig(readVarLong(buffer)));
+
+            // Skip fields added by newer versions.
+            buffer.position(end);
+
+            consumer.accept(process);
+        }
+        return time;
+    }
+
+    private static String toJson(Gson gson, Object value, Class<?> type) {
+        // Keep it compact, the plugin Gson instance pretty prints.
+        StringWriter writer = new StringWriter();
+        gson.toJson(value, type, new JsonWriter(writer));
+        return writer.toString();
+    }
+
+    @Nullable
+    private static String entry(List<String> dictionary, int index) {
+        return index == 0 ? null : dictionary.get(index - 1);
+    }
+
+    private static ByteBuffer writeDictionary(ByteBuffer buffer, List<String> entries) {
+        buffer = ensure(buffer, 5);
+        writeVarInt(buffer, entries.size());
+        for (String entry : entries) {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            buffer = ensure(buffer, bytes.length + 5);
+            writeVarInt(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+        return buffer;
+    }
+
+    private static List<String> readDictionary(ByteBuffer buffer) {
+        int size = readVarInt(buffer);
+        // Don't trust the size with the allocation.
+        List<String> entries = new ArrayList<>(Math.min(size, buffer.remaining()));
+        for (int i = 0; i < size; i++) {
+            int length = readVarInt(buffer);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            entries.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return entries;
+    }
+
+    // Grow the buffer to fit at least the extra amount of bytes. Returns the buffer to continue writing into.
+    private static ByteBuffer ensure(ByteBuffer buffer, int extra) {
+        if (buffer.remaining() >= extra) {
+            return buffer;
+        }
+
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int zagZig(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long zagZig(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("VarInt too long.");
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("VarLong too long.");
+    }
+}
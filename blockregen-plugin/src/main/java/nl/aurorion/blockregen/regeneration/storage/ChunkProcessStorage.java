@@ -0,0 +1,309 @@
+package nl.aurorion.blockregen.regeneration.storage;
+
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.regeneration.ProcessIndex;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.util.BukkitVersions;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Stores the processes of each chunk in the chunk's persistent data container as a binary blob.
+ * <p>
+ * The data is saved and loaded together with the chunk by the server. Processes are hydrated when their chunk loads
+ * and written back when it unloads or on save. Changes to unloaded chunks are written when they load again or on
+ * shutdown. Everything here runs on the main thread. Requires chunk PDC (1.16.3+).
+ */
+@Log
+public class ChunkProcessStorage implements ProcessStorage {
+
+    // Chunks loaded and written per tick when importing the file storage.
+    private static final int IMPORT_CHUNKS_PER_TICK = 4;
+
+    private final BlockRegenPlugin plugin;
+
+    private final NamespacedKey key;
+
+    private final BinaryProcessFormat format;
+
+    // Storage used before, imported world by world as they load.
+    private final ShardedProcessStorage files;
+
+    private final Executor mainThread;
+
+    // Chunks with changes not written to their container yet, per world. Main thread only.
+    private final Map<String, Set<Long>> dirty = new HashMap<>();
+
+    private final Set<String> loadedWorlds = new HashSet<>();
+
+    public ChunkProcessStorage(@NotNull BlockRegenPlugin plugin, @NotNull ShardedProcessStorage files) {
+        this.plugin = plugin;
+        this.key = new NamespacedKey(plugin, "processes");
+        this.format = new BinaryProcessFormat(plugin);
+        this.files = files;
+        this.mainThread = runnable -> Bukkit.getScheduler().runTask(plugin, runnable);
+    }
+
+    public static boolean isSupported() {
+        return BukkitVersions.isCurrentAbove("1.16.3", true);
+    }
+
+    private void markDirty(SimpleLocation location) {
+        dirty.computeIfAbsent(location.getWorld(), world -> new HashSet<>())
+                .add(ProcessIndex.chunkKey(location.getX() >> 4, location.getZ() >> 4));
+    }
+
+    @Override
+    public void register(@NotNull RegenerationProcess process) {
+        markDirty(process.getLocation());
+    }
+
+    @Override
+    public void update(@NotNull RegenerationProcess process) {
+        markDirty(process.getLocation());
+    }
+
+    @Override
+    public void remove(@NotNull SimpleLocation location) {
+        markDirty(location);
+    }
+
+    // Nothing is buffered outside of the chunks.
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Write the processes of the chunk into its container.
+     */
+    public void writeChunk(@NotNull Chunk chunk, @NotNull List<RegenerationProcess> processes) {
+        Set<Long> chunks = dirty.get(chunk.getWorld().getName());
+        if (chunks != null) {
+            chunks.remove(ProcessIndex.chunkKey(chunk.getX(), chunk.getZ()));
+        }
+
+        PersistentDataContainer container = chunk.getPersistentDataContainer();
+        if (processes.isEmpty()) {
+            container.remove(key);
+        } else {
+            container.set(key, PersistentDataType.BYTE_ARRAY, format.encode(processes));
+        }
+    }
+
+    public boolean isDirty(@NotNull Chunk chunk) {
+        Set<Long> chunks = dirty.get(chunk.getWorld().getName());
+        return chunks != null && chunks.contains(ProcessIndex.chunkKey(chunk.getX(), chunk.getZ()));
+    }
+
+    /**
+     * Read the processes stored in the chunk. Empty when the world is not loaded by the storage yet.
+     */
+    @NotNull
+    public List<RegenerationProcess> readChunk(@NotNull Chunk chunk) {
+        List<RegenerationProcess> processes = new ArrayList<>();
+        if (!loadedWorlds.contains(chunk.getWorld().getName())) {
+            return processes;
+        }
+
+        byte[] data = chunk.getPersistentDataContainer().get(key, PersistentDataType.BYTE_ARRAY);
+        if (data == null) {
+            return processes;
+        }
+
+        try {
+            format.decode(ByteBuffer.wrap(data), processes::add);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, String.format("Could not read processes of chunk %d, %d in %s: %s", chunk.getX(), chunk.getZ(), chunk.getWorld().getName(), e.getMessage()), e);
+        }
+        return processes;
+    }
+
+    /**
+     * Write the changed chunks that are loaded. A full save (shutdown) writes the unloaded ones as well and rewrites
+     * every chunk with processes, their timers kept running since. Has to be called from the main thread.
+     */
+    @Override
+    @NotNull
+    public CompletableFuture<Void> save(@NotNull Function<String, List<RegenerationProcess>> snapshot, boolean full) {
+        Set<String> worlds = new HashSet<>(dirty.keySet());
+        if (full) {
+            worlds.addAll(loadedWorlds);
+        }
+
+        for (String worldName : worlds) {
+            World world = Bukkit.getWorld(worldName);
+            Set<Long> changed = dirty.getOrDefault(worldName, Collections.emptySet());
+            if (world == null || (!full && changed.isEmpty())) {
+                continue;
+            }
+
+            // Group the processes of the world by chunk.
+            Map<Long, List<RegenerationProcess>> byChunk = new HashMap<>();
+            for (RegenerationProcess process : snapshot.apply(worldName)) {
+                SimpleLocation location = process.getLocation();
+                byChunk.computeIfAbsent(ProcessIndex.chunkKey(location.getX() >> 4, location.getZ() >> 4), k -> new ArrayList<>()).add(process);
+            }
+
+            Set<Long> chunks = new HashSet<>(changed);
+            if (full) {
+                chunks.addAll(byChunk.keySet());
+            }
+
+            for (Long chunkKey : chunks) {
+                int chunkX = (int) (chunkKey >> 32);
+                int chunkZ = (int) (long) chunkKey;
+
+                // Don't load chunks just to save them, they stay dirty and are written once they load again.
+                if (!full && !world.isChunkLoaded(chunkX, chunkZ)) {
+                    continue;
+                }
+
+                writeChunk(world.getChunkAt(chunkX, chunkZ), byChunk.getOrDefault(chunkKey, new ArrayList<>()));
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Void> compact(@NotNull String world, @NotNull Supplier<List<RegenerationProcess>> snapshot) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean isLoaded(@NotNull String world) {
+        return loadedWorlds.contains(world);
+    }
+
+    /**
+     * Import the file storage of the world into its chunks if there is one, then read the loaded chunks.
+     */
+    @Override
+    @NotNull
+    public CompletableFuture<List<RegenerationProcess>> load(@NotNull String worldName) {
+        if (!loadedWorlds.add(worldName)) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        CompletableFuture<List<RegenerationProcess>> imported = files.hasWorld(worldName) ?
+                CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return files.readWorld(worldName);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }) : CompletableFuture.completedFuture(null);
+
+        return imported.thenComposeAsync(processes -> {
+            World world = Bukkit.getWorld(worldName);
+            if (world == null || processes == null) {
+                return CompletableFuture.completedFuture((Void) null);
+            }
+            return importWorld(world, processes);
+        }, mainThread).thenApplyAsync(v -> {
+            World world = Bukkit.getWorld(worldName);
+            if (world == null) {
+                return new ArrayList<>();
+            }
+
+            List<RegenerationProcess> loaded = new ArrayList<>();
+            for (Chunk chunk : world.getLoadedChunks()) {
+                loaded.addAll(readChunk(chunk));
+            }
+            return loaded;
+        }, mainThread);
+    }
+
+    // Write the processes into their chunks, a few chunks per tick as they're loaded synchronously.
+    private CompletableFuture<Void> importWorld(World world, List<RegenerationProcess> processes) {
+        Map<Long, List<RegenerationProcess>> byChunk = new HashMap<>();
+        for (RegenerationProcess process : processes) {
+            SimpleLocation location = process.getLocation();
+            byChunk.computeIfAbsent(ProcessIndex.chunkKey(location.getX() >> 4, location.getZ() >> 4), k -> new ArrayList<>()).add(process);
+        }
+
+        ChunkImport chunkImport = new ChunkImport(world, byChunk);
+        chunkImport.task = Bukkit.getScheduler().runTaskTimer(plugin, chunkImport, 0L, 1L);
+
+        return chunkImport.done.thenRun(() -> {
+            try {
+                files.archiveWorld(world.getName());
+            } catch (IOException e) {
+                log.log(Level.SEVERE, "Could not archive the process files of " + world.getName() + ": " + e.getMessage(), e);
+            }
+
+            log.info("Moved " + processes.size() + " process(es) of " + world.getName() + " into " + byChunk.size() + " chunk(s).");
+        });
+    }
+
+    private class ChunkImport implements Runnable {
+        private final World world;
+
+        private final Iterator<Map.Entry<Long, List<RegenerationProcess>>> chunks;
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private BukkitTask task;
+
+        private ChunkImport(World world, Map<Long, List<RegenerationProcess>> byChunk) {
+            this.world = world;
+            this.chunks = byChunk.entrySet().iterator();
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < IMPORT_CHUNKS_PER_TICK && chunks.hasNext(); i++) {
+                Map.Entry<Long, List<RegenerationProcess>> entry = chunks.next();
+                Chunk chunk = world.getChunkAt((int) (entry.getKey() >> 32), (int) (long) entry.getKey());
+
+                // Data already in the chunk is newer.
+                if (!chunk.getPersistentDataContainer().has(key, PersistentDataType.BYTE_ARRAY)) {
+                    writeChunk(chunk, entry.getValue());
+                }
+            }
+
+            if (!chunks.hasNext()) {
+                task.cancel();
+                done.complete(null);
+            }
+        }
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Void> migrateLegacy(@NotNull Path dataFolder) {
+        // Split the single file storage into world files, those get imported as the worlds load.
+        return files.migrateLegacy(dataFolder);
+    }
+
+    @Override
+    public void close() {
+        files.close();
+    }
+}
@@ -0,0 +1,102 @@
+package nl.aurorion.blockregen.regeneration.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.util.GsonHelper;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Json snapshot format, an object with the snapshot time and an array of processes. Streamed in both directions.
+ * <p>
+ * The original Data.json, a plain json array of processes, is still read.
+ */
+public class JsonProcessFormat implements ProcessFormat {
+
+    private final BlockRegenPlugin plugin;
+
+    public JsonProcessFormat(BlockRegenPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public @NotNull String getExtension() {
+        return ".json";
+    }
+
+    @Override
+    public long read(@NotNull Path path, @NotNull Consumer<RegenerationProcess> consumer) throws IOException {
+        GsonHelper helper = plugin.getGsonHelper();
+        Gson gson = helper.getGson();
+
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             JsonReader jsonReader = gson.newJsonReader(reader)) {
+
+            JsonToken token;
+            try {
+                token = jsonReader.peek();
+            } catch (EOFException e) {
+                // Empty file.
+                return -1;
+            }
+
+            if (token == JsonToken.NULL) {
+                return -1;
+            }
+
+            // The original format without the time.
+            if (token == JsonToken.BEGIN_ARRAY) {
+                helper.readArray(jsonReader, RegenerationProcess.class, consumer);
+                return -1;
+            }
+
+            long time = -1;
+
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                switch (jsonReader.nextName()) {
+                    case "time":
+                        time = jsonReader.nextLong();
+                        break;
+                    case "processes":
+                        helper.readArray(jsonReader, RegenerationProcess.class, consumer);
+                        break;
+                    default:
+                        jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+            return time;
+        }
+    }
+
+    @Override
+    public void write(@NotNull List<RegenerationProcess> processes, long time, @NotNull Path path) throws IOException {
+        GsonHelper helper = plugin.getGsonHelper();
+
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             JsonWriter jsonWriter = helper.getGson().newJsonWriter(writer)) {
+            jsonWriter.beginObject();
+            jsonWriter.name("time").value(time);
+
+            jsonWriter.name("processes");
+            helper.writeArray(jsonWriter, processes, RegenerationProcess.class);
+
+            jsonWriter.endObject();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package nl.aurorion.blockregen.regeneration.storage;
+
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * File format of the process snapshot.
+ */
+public interface ProcessFormat {
+
+    /**
+     * Extension of the files in this format, including the dot.
+     */
+    @NotNull
+    String getExtension();
+
+    /**
+     * Read the processes one by one as they are decoded.
+     *
+     * @return Time the snapshot was taken at or -1 for files that don't store it.
+     */
+    long read(@NotNull Path path, @NotNull Consumer<RegenerationProcess> consumer) throws IOException;
+
+    @NotNull
+    default List<RegenerationProcess> read(@NotNull Path path) throws IOException {
+        List<RegenerationProcess> processes = new ArrayList<>();
+        read(path, processes::add);
+        return processes;
+    }
+
+    /**
+     * Write the processes along with the time the snapshot was taken at.
+     */
+    void write(@NotNull List<RegenerationProcess> processes, long time, @NotNull Path path) throws IOException;
+}
@@ -0,0 +1,304 @@
+package nl.aurorion.blockregen.regeneration.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Append-only journal of changes to the running processes.
+ * <p>
+ * Records are collected from any thread and appended to the journal file as json lines by a single background writer.
+ * Compaction writes a full snapshot and starts over with an empty journal. On startup the journal is replayed on top
+ * of the last snapshot.
+ */
+@Log
+public class ProcessJournal {
+
+    private enum Operation {
+        REGISTER,
+        UPDATE,
+        REMOVE
+    }
+
+    private static class Record {
+        private final Operation operation;
+        private final long time = System.currentTimeMillis();
+
+        private final SimpleLocation location;
+
+        private RegenerationProcess process;
+        private long regenerationTime;
+
+        private Record(Operation operation, SimpleLocation location) {
+            this.operation = operation;
+            this.location = location;
+        }
+    }
+
+    private final BlockRegenPlugin plugin;
+
+    private final Path path;
+
+    // Has to run the tasks in order, keeps the batches and compactions in the order they were submitted.
+    private final Executor writer;
+
+    // Records not yet handed to the writer. Guarded by this.
+    private List<Record> pending = new ArrayList<>();
+
+    // Records in the journal file since the last compaction.
+    private volatile int recordCount = 0;
+
+    /**
+     * Writes a snapshot of the processes taken at the given time.
+     */
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        void write(@NotNull List<RegenerationProcess> processes, long time) throws IOException;
+    }
+
+    public ProcessJournal(BlockRegenPlugin plugin, Path path, Executor writer) {
+        this.plugin = plugin;
+        this.path = path;
+        this.writer = writer;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized void register(@NotNull RegenerationProcess process) {
+        Record record = new Record(Operation.REGISTER, process.getLocation());
+        // Serialized later on the writer thread.
+        record.process = process.snapshot();
+        pending.add(record);
+    }
+
+    public synchronized void update(@NotNull RegenerationProcess process) {
+        Record record = new Record(Operation.UPDATE, process.getLocation());
+        record.regenerationTime = process.getRegenerationTime();
+        pending.add(record);
+    }
+
+    public synchronized void remove(@NotNull SimpleLocation location) {
+        pending.add(new Record(Operation.REMOVE, location));
+    }
+
+    /**
+     * Hand the pending records to the background writer.
+     */
+    @NotNull
+    public synchronized CompletableFuture<Void> flush() {
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<Record> batch = this.pending;
+        this.pending = new ArrayList<>();
+
+        return CompletableFuture.runAsync(() -> append(batch), writer);
+    }
+
+    /**
+     * Write a full snapshot of the processes and truncate the journal.
+     * <p>
+     * The snapshot is taken while holding the journal lock, records added after it end up in the new journal.
+     *
+     * @param snapshot      Supplies the current processes.
+     * @param writeSnapshot Writes the snapshot into the storage. Runs on the writer.
+     */
+    @NotNull
+    public synchronized CompletableFuture<Void> compact(@NotNull Supplier<List<RegenerationProcess>> snapshot,
+                                                        @NotNull SnapshotWriter writeSnapshot) {
+        List<RegenerationProcess> processes = snapshot.get();
+        long time = System.currentTimeMillis();
+
+        // Pending records are already reflected in the snapshot.
+        this.pending = new ArrayList<>();
+
+        return CompletableFuture.runAsync(() -> {
+            try {
+                writeSnapshot.write(processes, time);
+                Files.write(path, new byte[0], StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            recordCount = 0;
+            log.fine(() -> "Compacted the journal into a snapshot of " + processes.size() + " process(es).");
+        }, writer);
+    }
+
+    private void append(List<Record> batch) {
+        Gson gson = plugin.getGsonHelper().getGson();
+
+        StringBuilder builder = new StringBuilder(batch.size() * 96);
+        for (Record record : batch) {
+            builder.append(serialize(gson, record)).append('\n');
+        }
+
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            out.write(builder.toString());
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "Could not append to the process journal: " + e.getMessage(), e);
+            return;
+        }
+
+        recordCount += batch.size();
+        log.finer(() -> "Appended " + batch.size() + " record(s) to the process journal.");
+    }
+
+    private String serialize(Gson gson, Record record) {
+        JsonObject object = new JsonObject();
+        object.addProperty("op", record.operation.name());
+        object.addProperty("time", record.time);
+
+        if (record.operation == Operation.REGISTER) {
+            object.add("process", gson.toJsonTree(record.process, RegenerationProcess.class));
+        } else {
+            object.addProperty("world", record.location.getWorld());
+            object.addProperty("x", record.location.getX());
+            object.addProperty("y", record.location.getY());
+            object.addProperty("z", record.location.getZ());
+
+            if (record.operation == Operation.UPDATE) {
+                object.addProperty("regenerationTime", record.regenerationTime);
+            }
+        }
+
+        // Gson#toJson(JsonElement) would use the pretty printing of the plugin instance, keep one record per line.
+        StringWriter writer = new StringWriter();
+        gson.toJson(object, new JsonWriter(writer));
+        return writer.toString();
+    }
+
+    /**
+     * Replay the journal on top of the snapshot. Time left of the processes is shifted to the time of the last record.
+     *
+     * @param snapshot     Processes loaded from the snapshot.
+     * @param snapshotTime Time the snapshot was written.
+     */
+    @NotNull
+    public List<RegenerationProcess> replay(@NotNull List<RegenerationProcess> snapshot, long snapshotTime) throws IOException {
+        if (!Files.exists(path)) {
+            return snapshot;
+        }
+
+        Gson gson = plugin.getGsonHelper().getGson();
+
+        Map<SimpleLocation, RegenerationProcess> processes = new LinkedHashMap<>();
+        // Time from which the time left of the process counts down.
+        Map<SimpleLocation, Long> baseTimes = new HashMap<>();
+        Map<SimpleLocation, Long> regenerationTimes = new HashMap<>();
+
+        for (RegenerationProcess process : snapshot) {
+            if (process != null && process.getLocation() != null) {
+                processes.put(process.getLocation(), process);
+                baseTimes.put(process.getLocation(), snapshotTime);
+            }
+        }
+
+        long reference = snapshotTime;
+        int records = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                JsonObject object;
+                Operation operation;
+                try {
+                    object = JsonParser.parseString(line).getAsJsonObject();
+                    operation = Operation.valueOf(object.get("op").getAsString());
+                } catch (JsonParseException | IllegalStateException | IllegalArgumentException | NullPointerException e) {
+                    // Most likely a record cut off by a crash.
+                    log.warning("Skipping a malformed journal record: " + line);
+                    continue;
+                }
+
+                long time = object.get("time").getAsLong();
+                reference = Math.max(reference, time);
+                records++;
+
+                if (operation == Operation.REGISTER) {
+                    RegenerationProcess process = gson.fromJson(object.get("process"), RegenerationProcess.class);
+                    if (process == null || process.getLocation() == null) {
+                        continue;
+                    }
+
+                    processes.put(process.getLocation(), process);
+                    baseTimes.put(process.getLocation(), time);
+                    regenerationTimes.remove(process.getLocation());
+                    continue;
+                }
+
+                SimpleLocation location = new SimpleLocation(object.get("world").getAsString(),
+                        object.get("x").getAsInt(), object.get("y").getAsInt(), object.get("z").getAsInt());
+
+                if (operation == Operation.UPDATE) {
+                    JsonElement regenerationTime = object.get("regenerationTime");
+                    regenerationTimes.put(location, regenerationTime.getAsLong());
+                } else {
+                    processes.remove(location);
+                    baseTimes.remove(location);
+                    regenerationTimes.remove(location);
+                }
+            }
+        }
+
+        this.recordCount = records;
+
+        if (records == 0) {
+            return snapshot;
+        }
+
+        for (RegenerationProcess process : processes.values()) {
+            Long regenerationTime = regenerationTimes.get(process.getLocation());
+
+            if (regenerationTime != null) {
+                process.setTimeLeft(Math.max(0, regenerationTime - reference));
+            } else if (process.getTimeLeft() > 0) {
+                long base = baseTimes.getOrDefault(process.getLocation(), reference);
+                process.setTimeLeft(Math.max(0, process.getTimeLeft() - (reference - base)));
+            }
+        }
+
+        int replayed = records;
+        log.info("Replayed " + replayed + " journal record(s)...");
+        return new ArrayList<>(processes.values());
+    }
+}
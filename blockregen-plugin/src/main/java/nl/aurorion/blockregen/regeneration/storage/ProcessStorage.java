@@ -0,0 +1,65 @@
+package nl.aurorion.blockregen.regeneration.storage;
+
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Persistent storage of the regeneration processes, loaded per world.
+ * <p>
+ * Changes are reported as they happen and written in the background. Processes are handed over as detached snapshots
+ * ({@link RegenerationProcess#snapshot()}) or snapshotted before leaving the calling thread.
+ */
+public interface ProcessStorage {
+
+    void register(@NotNull RegenerationProcess process);
+
+    void update(@NotNull RegenerationProcess process);
+
+    void remove(@NotNull SimpleLocation location);
+
+    /**
+     * Hand the collected changes to the background writer.
+     */
+    void flush();
+
+    /**
+     * Persist the processes of the loaded worlds.
+     *
+     * @param snapshot Supplies the current processes of a world. Called on the calling thread.
+     * @param full     Write everything out now (shutdown).
+     */
+    @NotNull
+    CompletableFuture<Void> save(@NotNull Function<String, List<RegenerationProcess>> snapshot, boolean full);
+
+    /**
+     * Called after the processes of a world were loaded and started.
+     */
+    @NotNull
+    CompletableFuture<Void> compact(@NotNull String world, @NotNull Supplier<List<RegenerationProcess>> snapshot);
+
+    boolean isLoaded(@NotNull String world);
+
+    /**
+     * Load the processes of the world. Returns an empty list when the world is loaded already.
+     */
+    @NotNull
+    CompletableFuture<List<RegenerationProcess>> load(@NotNull String world);
+
+    /**
+     * Import data of older storages. Worlds are loaded only after this finished.
+     */
+    @NotNull
+    CompletableFuture<Void> migrateLegacy(@NotNull Path dataFolder);
+
+    /**
+     * Wait for the submitted writes and release the storage. Call after the final save.
+     */
+    void close();
+}
@@ -0,0 +1,480 @@
+package nl.aurorion.blockregen.regeneration.storage;
+
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.Pair;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.util.AtomicFiles;
+import nl.aurorion.blockregen.util.SerialExecutor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Process storage split into a shard per world.
+ * <p>
+ * Each shard has its own snapshot file, journal and dirty flag. Only shards that changed get written, the writes of
+ * different shards run in parallel on a bounded pool while the writes of a single shard stay in order. A shard is
+ * loaded once its world is.
+ */
+@Log
+public class ShardedProcessStorage implements ProcessStorage {
+
+    private static class Shard {
+        private final String world;
+
+        private final SerialExecutor writer;
+
+        // Null when journaling is disabled.
+        @Nullable
+        private final ProcessJournal journal;
+
+        // Changed since the last snapshot.
+        private volatile boolean dirty = false;
+
+        private volatile boolean loaded = false;
+
+        private Shard(String world, SerialExecutor writer, @Nullable ProcessJournal journal) {
+            this.world = world;
+            this.writer = writer;
+            this.journal = journal;
+        }
+    }
+
+    private final BlockRegenPlugin plugin;
+
+    private final ProcessFormat format;
+
+    private final Path folder;
+
+    private final int backups;
+
+    private final boolean journaling;
+
+    private final int compactThreshold;
+
+    private final ExecutorService executor;
+
+    private final Map<String, Shard> shards = new ConcurrentHashMap<>();
+
+    // Completes once the old single file storage is migrated.
+    private CompletableFuture<Void> ready = CompletableFuture.completedFuture(null);
+
+    public ShardedProcessStorage(@NotNull BlockRegenPlugin plugin, @NotNull ProcessFormat format, @NotNull Path folder,
+                                 int backups, boolean journaling, int compactThreshold, int threads) {
+        this.plugin = plugin;
+        this.format = format;
+        this.folder = folder;
+        this.backups = backups;
+        this.journaling = journaling;
+        this.compactThreshold = compactThreshold;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "BlockRegen Storage #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @NotNull
+    private Shard shard(@NotNull String world) {
+        return shards.computeIfAbsent(world, name -> {
+            SerialExecutor writer = new SerialExecutor(executor);
+            ProcessJournal journal = journaling ? new ProcessJournal(plugin, folder.resolve(name + ".journal"), writer) : null;
+            return new Shard(name, writer, journal);
+        });
+    }
+
+    @NotNull
+    private Path snapshotPath(@NotNull String world, @NotNull ProcessFormat format) {
+        return folder.resolve(world + format.getExtension());
+    }
+
+    @NotNull
+    private ProcessFormat otherFormat() {
+        return format instanceof BinaryProcessFormat ? new JsonProcessFormat(plugin) : new BinaryProcessFormat(plugin);
+    }
+
+    @Override
+    public boolean isLoaded(@NotNull String world) {
+        Shard shard = shards.get(world);
+        return shard != null && shard.loaded;
+    }
+
+    @Override
+    public void register(@NotNull RegenerationProcess process) {
+        Shard shard = shard(process.getLocation().getWorld());
+        shard.dirty = true;
+        if (shard.journal != null) {
+            shard.journal.register(process);
+        }
+    }
+
+    @Override
+    public void update(@NotNull RegenerationProcess process) {
+        Shard shard = shard(process.getLocation().getWorld());
+        shard.dirty = true;
+        if (shard.journal != null) {
+            shard.journal.update(process);
+        }
+    }
+
+    @Override
+    public void remove(@NotNull SimpleLocation location) {
+        Shard shard = shard(location.getWorld());
+        shard.dirty = true;
+        if (shard.journal != null) {
+            shard.journal.remove(location);
+        }
+    }
+
+    /**
+     * Hand the pending journal records to the writers.
+     */
+    @Override
+    public void flush() {
+        for (Shard shard : shards.values()) {
+            if (shard.journal != null) {
+                shard.journal.flush();
+            }
+        }
+    }
+
+    /**
+     * Persist the loaded shards. With the journal enabled only the changes since the last save are written, unless
+     * the journal grew over the compaction threshold or a full save is requested.
+     *
+     * @param snapshot Supplies the current processes of a world. Called on the calling thread.
+     * @param full     Rewrite all the shards with processes or changes.
+     */
+    @Override
+    @NotNull
+    public CompletableFuture<Void> save(@NotNull Function<String, List<RegenerationProcess>> snapshot, boolean full) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (Shard shard : shards.values()) {
+            // Processes of unloaded shards are not in the cache.
+            if (!shard.loaded) {
+                continue;
+            }
+
+            // Timers keep running, a full save rewrites every shard with processes so the stored time left is fresh.
+            List<RegenerationProcess> processes = full ? snapshot.apply(shard.world) : null;
+
+            if (shard.journal == null) {
+                if (shard.dirty || (full && !processes.isEmpty())) {
+                    futures.add(writeSnapshot(shard, full ? processes : snapshot.apply(shard.world)));
+                }
+                continue;
+            }
+
+            ProcessJournal journal = shard.journal;
+            int records = journal.getRecordCount() + journal.getPendingCount();
+
+            if (full && (records > 0 || !processes.isEmpty())) {
+                futures.add(compact(shard, () -> processes));
+            } else if (records >= compactThreshold) {
+                futures.add(compact(shard, () -> snapshot.apply(shard.world)));
+            } else {
+                futures.add(journal.flush());
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Squash the journal of the world into a fresh snapshot.
+     */
+    @Override
+    @NotNull
+    public CompletableFuture<Void> compact(@NotNull String world, @NotNull Supplier<List<RegenerationProcess>> snapshot) {
+        Shard shard = shard(world);
+        if (shard.journal == null) {
+            return writeSnapshot(shard, snapshot.get());
+        }
+        return compact(shard, snapshot);
+    }
+
+    private CompletableFuture<Void> compact(Shard shard, Supplier<List<RegenerationProcess>> snapshot) {
+        // Cleared before taking the snapshot, changes made during it mark the shard again.
+        shard.dirty = false;
+        //noinspection ConstantConditions
+        return shard.journal.compact(snapshot, (processes, time) -> writeShard(shard.world, processes, time));
+    }
+
+    private CompletableFuture<Void> writeSnapshot(Shard shard, List<RegenerationProcess> processes) {
+        shard.dirty = false;
+        long time = System.currentTimeMillis();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                writeShard(shard.world, processes, time);
+            } catch (IOException e) {
+                shard.dirty = true;
+                throw new UncheckedIOException(e);
+            }
+        }, shard.writer);
+    }
+
+    // The time the snapshot was taken at is stored with it, the journal is replayed from there.
+    private void writeShard(String world, List<RegenerationProcess> processes, long time) throws IOException {
+        Files.createDirectories(folder);
+        AtomicFiles.write(snapshotPath(world, format), backups, path -> format.write(processes, time, path));
+        log.fine(() -> "Saved " + processes.size() + " regeneration process(es) of world " + world + "..");
+    }
+
+    /**
+     * Load the processes of the world. Returns an empty list when the shard is loaded already.
+     */
+    @Override
+    @NotNull
+    public CompletableFuture<List<RegenerationProcess>> load(@NotNull String world) {
+        Shard shard = shard(world);
+
+        synchronized (shard) {
+            if (shard.loaded) {
+                return CompletableFuture.completedFuture(new ArrayList<>());
+            }
+            shard.loaded = true;
+        }
+
+        return ready.thenApplyAsync(v -> {
+            try {
+                return readShard(shard);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, shard.writer);
+    }
+
+    private List<RegenerationProcess> readShard(Shard shard) throws IOException {
+        Pair<List<RegenerationProcess>, Long> snapshot = readSnapshot(format, snapshotPath(shard.world, format));
+
+        // Switch the shard to the configured format.
+        if (snapshot == null) {
+            ProcessFormat other = otherFormat();
+            Path otherPath = snapshotPath(shard.world, other);
+
+            snapshot = readSnapshot(other, otherPath);
+            if (snapshot != null) {
+                writeShard(shard.world, snapshot.getFirst(), snapshot.getSecond());
+                Files.move(otherPath, otherPath.resolveSibling(otherPath.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+                log.info("Migrated processes of world " + shard.world + " to " + format.getExtension() + ".");
+            }
+        }
+
+        List<RegenerationProcess> processes = snapshot == null ? new ArrayList<>() : snapshot.getFirst();
+        long snapshotTime = snapshot == null ? 0 : snapshot.getSecond();
+
+        // Replay the changes since the last snapshot on top of it.
+        return shard.journal == null ? processes : shard.journal.replay(processes, snapshotTime);
+    }
+
+    /**
+     * Read the newest generation of the snapshot that can be parsed.
+     *
+     * @return Processes and the time the snapshot was written or null if there's none.
+     */
+    @Nullable
+    private Pair<List<RegenerationProcess>, Long> readSnapshot(@NotNull ProcessFormat format, @NotNull Path target) {
+        List<Path> generations = AtomicFiles.generations(target, backups);
+
+        for (Path path : generations) {
+            try {
+                List<RegenerationProcess> processes = new ArrayList<>();
+                long time = format.read(path, processes::add);
+
+                if (!path.equals(target)) {
+                    log.warning("Loaded processes from backup " + path.getFileName() + ", changes made after it was written might be lost.");
+                }
+                // Files written before the time was stored in them.
+                return new Pair<>(processes, time == -1 ? path.toFile().lastModified() : time);
+            } catch (IOException | RuntimeException e) {
+                log.log(Level.SEVERE, "Could not read processes from " + path.getFileName() + ": " + e.getMessage(), e);
+            }
+        }
+
+        if (!generations.isEmpty()) {
+            log.severe("None of the saved process files for " + target.getFileName() + " could be read.");
+        }
+        return null;
+    }
+
+    /**
+     * Split the old single file storage (Data.json/Data.bin and Data.journal) into shards. Shards are loaded only after
+     * this finished.
+     */
+    @Override
+    @NotNull
+    public CompletableFuture<Void> migrateLegacy(@NotNull Path dataFolder) {
+        this.ready = CompletableFuture.runAsync(() -> {
+            try {
+                migrate(dataFolder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor).exceptionally(e -> {
+            log.log(Level.SEVERE, "Could not migrate the old process storage: " + e.getMessage(), e);
+            return null;
+        });
+        return ready;
+    }
+
+    private void migrate(Path dataFolder) throws IOException {
+        ProcessFormat legacyFormat = null;
+        Pair<List<RegenerationProcess>, Long> snapshot = null;
+
+        for (ProcessFormat candidate : new ProcessFormat[]{format, otherFormat()}) {
+            snapshot = readSnapshot(candidate, dataFolder.resolve("Data" + candidate.getExtension()));
+            if (snapshot != null) {
+                legacyFormat = candidate;
+                break;
+            }
+        }
+
+        Path legacyJournalPath = dataFolder.resolve("Data.journal");
+
+        if (snapshot == null && !Files.exists(legacyJournalPath)) {
+            return;
+        }
+
+        List<RegenerationProcess> processes = snapshot == null ? new ArrayList<>() : snapshot.getFirst();
+        long snapshotTime = snapshot == null ? 0 : snapshot.getSecond();
+
+        if (Files.exists(legacyJournalPath)) {
+            // Replayed synchronously, the writer is never used.
+            ProcessJournal legacyJournal = new ProcessJournal(plugin, legacyJournalPath, Runnable::run);
+            processes = legacyJournal.replay(processes, snapshotTime);
+        }
+
+        Map<String, List<RegenerationProcess>> byWorld = new LinkedHashMap<>();
+        for (RegenerationProcess process : processes) {
+            if (process != null && process.getLocation() != null) {
+                byWorld.computeIfAbsent(process.getLocation().getWorld(), world -> new ArrayList<>()).add(process);
+            }
+        }
+
+        for (Map.Entry<String, List<RegenerationProcess>> entry : byWorld.entrySet()) {
+            if (Files.exists(snapshotPath(entry.getKey(), format))) {
+                log.warning("World " + entry.getKey() + " already has a process file, skipping " + entry.getValue().size() + " process(es) from the old storage.");
+                continue;
+            }
+            writeShard(entry.getKey(), entry.getValue(), System.currentTimeMillis());
+        }
+
+        if (legacyFormat != null) {
+            Path legacy = dataFolder.resolve("Data" + legacyFormat.getExtension());
+            if (Files.exists(legacy)) {
+                Files.move(legacy, legacy.resolveSibling(legacy.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        if (Files.exists(legacyJournalPath)) {
+            Files.move(legacyJournalPath, legacyJournalPath.resolveSibling("Data.journal.migrated"), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        log.info("Migrated " + processes.size() + " process(es) of " + byWorld.size() + " world(s) into " + folder.getFileName() + "/.");
+    }
+
+    /**
+     * Read the processes of all the stored worlds, loaded or not. Used to move the data into another storage.
+     */
+    @NotNull
+    public List<RegenerationProcess> readAll() throws IOException {
+        List<RegenerationProcess> processes = new ArrayList<>();
+        if (!Files.isDirectory(folder)) {
+            return processes;
+        }
+
+        Set<String> worlds = new LinkedHashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                for (String extension : new String[]{".bin", ".json", ".journal"}) {
+                    if (name.endsWith(extension)) {
+                        worlds.add(name.substring(0, name.length() - extension.length()));
+                    }
+                }
+            }
+        }
+
+        for (String world : worlds) {
+            processes.addAll(readWorld(world));
+        }
+        return processes;
+    }
+
+    /**
+     * Read the stored processes of the world, loaded or not.
+     */
+    @NotNull
+    public List<RegenerationProcess> readWorld(@NotNull String world) throws IOException {
+        return readShard(shard(world));
+    }
+
+    public boolean hasWorld(@NotNull String world) {
+        for (String extension : new String[]{".bin", ".json", ".journal"}) {
+            if (Files.exists(folder.resolve(world + extension))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rename the files of the world out of the way after its processes were moved into another storage.
+     */
+    public void archiveWorld(@NotNull String world) throws IOException {
+        for (String extension : new String[]{".bin", ".json", ".journal"}) {
+            Path path = folder.resolve(world + extension);
+            if (Files.exists(path)) {
+                Files.move(path, path.resolveSibling(path.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Wait for the submitted writes and stop the writer threads. Call after the final save.
+     */
+    @Override
+    public void close() {
+        List<CompletableFuture<Void>> idle = new ArrayList<>();
+        for (Shard shard : shards.values()) {
+            idle.add(shard.writer.idle());
+        }
+
+        try {
+            CompletableFuture.allOf(idle.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warning("Process storage did not finish writing in time.");
+        }
+
+        executor.shutdown();
+    }
+}
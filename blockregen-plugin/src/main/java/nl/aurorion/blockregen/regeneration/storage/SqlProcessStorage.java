@@ -0,0 +1,474 @@
+package nl.aurorion.blockregen.regeneration.storage;
+
+import com.cryptomorin.xseries.XMaterial;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.java.Log;
+import nl.aurorion.blockregen.BlockRegenPlugin;
+import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import nl.aurorion.blockregen.regeneration.ProcessIndex;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.version.api.NodeData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Process storage in an embedded SQLite database.
+ * <p>
+ * Changes are coalesced per location until the next flush and written in a single transaction with batched prepared
+ * statements on a dedicated thread. The table is indexed by world, chunk, region and preset. Spigot ships the SQLite
+ * driver.
+ */
+@Log
+public class SqlProcessStorage implements ProcessStorage {
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS processes (" +
+            "world TEXT NOT NULL, x INTEGER NOT NULL, y INTEGER NOT NULL, z INTEGER NOT NULL, " +
+            "chunk INTEGER NOT NULL, " +
+            "id TEXT, world_name TEXT, region TEXT, preset TEXT, " +
+            "original_material TEXT, original_data TEXT, original_custom_material TEXT, " +
+            "time_left INTEGER NOT NULL, " +
+            "PRIMARY KEY (world, x, y, z))";
+
+    private static final String[] CREATE_INDICES = {
+            "CREATE INDEX IF NOT EXISTS processes_chunk ON processes (world, chunk)",
+            "CREATE INDEX IF NOT EXISTS processes_region ON processes (region)",
+            "CREATE INDEX IF NOT EXISTS processes_preset ON processes (preset)"
+    };
+
+    private static final String UPSERT = "INSERT OR REPLACE INTO processes " +
+            "(world, x, y, z, chunk, id, world_name, region, preset, original_material, original_data, original_custom_material, time_left) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE = "DELETE FROM processes WHERE world = ? AND x = ? AND y = ? AND z = ?";
+
+    private static final String UPDATE_TIME_LEFT = "UPDATE processes SET time_left = ? WHERE world = ? AND x = ? AND y = ? AND z = ?";
+
+    private static final String SELECT_WORLD = "SELECT * FROM processes WHERE world = ?";
+
+    private final BlockRegenPlugin plugin;
+
+    private final Path path;
+
+    // All the database work happens on this thread.
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "BlockRegen Database");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only used on the writer thread.
+    private Connection connection;
+
+    // Latest change per location since the last flush, a snapshot to write or null to delete. Guarded by this.
+    private Map<SimpleLocation, RegenerationProcess> pending = new LinkedHashMap<>();
+
+    private final Set<String> loadedWorlds = ConcurrentHashMap.newKeySet();
+
+    // Completes once the old storage is imported.
+    private CompletableFuture<Void> ready = CompletableFuture.completedFuture(null);
+
+    public SqlProcessStorage(@NotNull BlockRegenPlugin plugin, @NotNull Path path) {
+        this.plugin = plugin;
+        this.path = path;
+    }
+
+    /**
+     * Connect to the database and create the tables.
+     *
+     * @throws SQLException When the driver is missing or the database can't be opened.
+     */
+    public void open() throws SQLException {
+        try {
+            writer.submit(() -> {
+                Class.forName("org.sqlite.JDBC");
+
+                this.connection = DriverManager.getConnection("jdbc:sqlite:" + path.toAbsolutePath());
+
+                // Can't change the journal mode inside a transaction.
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA journal_mode=WAL");
+                    statement.execute("PRAGMA synchronous=NORMAL");
+                }
+
+                connection.setAutoCommit(false);
+
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_TABLE);
+                    for (String index : CREATE_INDICES) {
+                        statement.execute(index);
+                    }
+                }
+                connection.commit();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while opening the database.", e);
+        } catch (Exception e) {
+            writer.shutdown();
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public synchronized void register(@NotNull RegenerationProcess process) {
+        pending.put(process.getLocation(), process.snapshot());
+    }
+
+    @Override
+    public synchronized void update(@NotNull RegenerationProcess process) {
+        pending.put(process.getLocation(), process.snapshot());
+    }
+
+    @Override
+    public synchronized void remove(@NotNull SimpleLocation location) {
+        pending.put(location, null);
+    }
+
+    @Override
+    public void flush() {
+        flushPending();
+    }
+
+    @NotNull
+    private synchronized CompletableFuture<Void> flushPending() {
+        if (pending.isEmpty()) {
+            // Still wait for the previous writes.
+            return CompletableFuture.runAsync(() -> {
+            }, writer);
+        }
+
+        Map<SimpleLocation, RegenerationProcess> batch = this.pending;
+        this.pending = new LinkedHashMap<>();
+
+        return CompletableFuture.runAsync(() -> {
+            try {
+                write(batch);
+            } catch (SQLException e) {
+                rollback();
+                requeue(batch);
+                log.log(Level.SEVERE, "Could not write " + batch.size() + " process change(s) to the database, retrying with the next flush: " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+        }, writer);
+    }
+
+    // Put a failed batch back in front of the changes made since, those win.
+    private synchronized void requeue(Map<SimpleLocation, RegenerationProcess> batch) {
+        batch.putAll(this.pending);
+        this.pending = batch;
+    }
+
+    private void write(Map<SimpleLocation, RegenerationProcess> batch) throws SQLException {
+        Gson gson = plugin.getGsonHelper().getGson();
+
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT);
+             PreparedStatement delete = connection.prepareStatement(DELETE)) {
+
+            for (Map.Entry<SimpleLocation, RegenerationProcess> entry : batch.entrySet()) {
+                SimpleLocation location = entry.getKey();
+                RegenerationProcess process = entry.getValue();
+
+                if (process == null) {
+                    delete.setString(1, location.getWorld());
+                    delete.setInt(2, location.getX());
+                    delete.setInt(3, location.getY());
+                    delete.setInt(4, location.getZ());
+                    delete.addBatch();
+                    continue;
+                }
+
+                upsert.setString(1, location.getWorld());
+                upsert.setInt(2, location.getX());
+                upsert.setInt(3, location.getY());
+                upsert.setInt(4, location.getZ());
+                upsert.setLong(5, ProcessIndex.chunkKey(location.getX() >> 4, location.getZ() >> 4));
+                setNullable(upsert, 6, process.getId() == null ? null : process.getId().toString());
+                setNullable(upsert, 7, process.getWorldName());
+                setNullable(upsert, 8, process.getRegionName());
+                setNullable(upsert, 9, process.getPresetName());
+                setNullable(upsert, 10, process.getOriginalMaterialType() == null ? null : process.getOriginalMaterialType().name());
+                setNullable(upsert, 11, process.getOriginalData() == null ? null : toJson(gson, process.getOriginalData(), NodeData.class));
+                setNullable(upsert, 12, process.getOriginalCustomMaterial() == null ? null : toJson(gson, process.getOriginalCustomMaterial(), BlockRegenMaterial.class));
+                upsert.setLong(13, process.getTimeLeft());
+                upsert.addBatch();
+            }
+
+            delete.executeBatch();
+            upsert.executeBatch();
+        }
+
+        connection.commit();
+
+        log.finer(() -> "Wrote " + batch.size() + " process change(s) to the database.");
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.log(Level.WARNING, "Could not roll back: " + e.getMessage(), e);
+        }
+    }
+
+    private static void setNullable(PreparedStatement statement, int index, @Nullable String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+
+    private static String toJson(Gson gson, Object value, Class<?> type) {
+        StringWriter writer = new StringWriter();
+        gson.toJson(value, type, new JsonWriter(writer));
+        return writer.toString();
+    }
+
+    /**
+     * Changes are written with every flush. The stored time left only changes with them though, a full save refreshes
+     * it for all the processes of the loaded worlds in one transaction.
+     */
+    @Override
+    @NotNull
+    public CompletableFuture<Void> save(@NotNull Function<String, List<RegenerationProcess>> snapshot, boolean full) {
+        CompletableFuture<Void> flushed = flushPending();
+        if (!full) {
+            return flushed;
+        }
+
+        List<RegenerationProcess> processes = new ArrayList<>();
+        for (String world : loadedWorlds) {
+            processes.addAll(snapshot.apply(world));
+        }
+
+        if (processes.isEmpty()) {
+            return flushed;
+        }
+
+        // A failed flush is logged and retried on its own, refresh the rows written before anyway.
+        return flushed.exceptionally(e -> null).thenRunAsync(() -> {
+            try {
+                writeTimesLeft(processes);
+            } catch (SQLException e) {
+                rollback();
+                throw new CompletionException(e);
+            }
+        }, writer);
+    }
+
+    private void writeTimesLeft(List<RegenerationProcess> processes) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_TIME_LEFT)) {
+            for (RegenerationProcess process : processes) {
+                SimpleLocation location = process.getLocation();
+                statement.setLong(1, process.getTimeLeft());
+                statement.setString(2, location.getWorld());
+                statement.setInt(3, location.getX());
+                statement.setInt(4, location.getY());
+                statement.setInt(5, location.getZ());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        connection.commit();
+
+        log.finer(() -> "Refreshed the time left of " + processes.size() + " process(es) in the database.");
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Void> compact(@NotNull String world, @NotNull Supplier<List<RegenerationProcess>> snapshot) {
+        return flushPending();
+    }
+
+    @Override
+    public boolean isLoaded(@NotNull String world) {
+        return loadedWorlds.contains(world);
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<List<RegenerationProcess>> load(@NotNull String world) {
+        if (!loadedWorlds.add(world)) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        // Pending writes go first.
+        CompletableFuture<Void> flushed = flushPending();
+
+        return ready.thenCombine(flushed, (a, b) -> null).thenApplyAsync(v -> {
+            try {
+                return select(world);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, writer);
+    }
+
+    private List<RegenerationProcess> select(String world) throws SQLException {
+        Gson gson = plugin.getGsonHelper().getGson();
+
+        // Parsed materials are shared between the processes.
+        Map<String, NodeData> nodeData = new HashMap<>();
+        Map<String, BlockRegenMaterial> materials = new HashMap<>();
+
+        List<RegenerationProcess> processes = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_WORLD)) {
+            statement.setString(1, world);
+
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    RegenerationProcess process = new RegenerationProcess();
+
+                    String id = result.getString("id");
+                    process.setId(id == null ? UUID.randomUUID() : UUID.fromString(id));
+                    process.setLocation(new SimpleLocation(world, result.getInt("x"), result.getInt("y"), result.getInt("z")));
+                    process.setWorldName(result.getString("world_name"));
+                    process.setRegionName(result.getString("region"));
+                    process.setPresetName(result.getString("preset"));
+
+                    String material = result.getString("original_material");
+                    process.setOriginalMaterial(material == null ? null : XMaterial.matchXMaterial(material).orElse(null));
+
+                    String data = result.getString("original_data");
+                    process.setOriginalData(data == null ? null : nodeData.computeIfAbsent(data, json -> gson.fromJson(json, NodeData.class)));
+
+                    String customMaterial = result.getString("original_custom_material");
+                    if (customMaterial != null) {
+                        try {
+                            process.setOriginalCustomMaterial(materials.computeIfAbsent(customMaterial, json -> gson.fromJson(json, BlockRegenMaterial.class)));
+                        } catch (RuntimeException e) {
+                            log.warning("Could not load material " + customMaterial + ": " + e.getMessage());
+                        }
+                    }
+
+                    process.setTimeLeft(result.getLong("time_left"));
+                    processes.add(process);
+                }
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * Import the file storage into an empty database. The imported files are renamed to *.migrated.
+     */
+    @Override
+    @NotNull
+    public CompletableFuture<Void> migrateLegacy(@NotNull Path dataFolder) {
+        this.ready = CompletableFuture.runAsync(() -> {
+            try {
+                importFiles(dataFolder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SQLException e) {
+                rollback();
+                throw new CompletionException(e);
+            }
+        }, writer).exceptionally(e -> {
+            log.log(Level.SEVERE, "Could not import the process files into the database: " + e.getMessage(), e);
+            return null;
+        });
+        return ready;
+    }
+
+    private void importFiles(Path dataFolder) throws IOException, SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM processes")) {
+            if (result.next() && result.getLong(1) > 0) {
+                return;
+            }
+        }
+
+        Path folder = dataFolder.resolve("Data");
+        boolean legacy = Files.exists(dataFolder.resolve("Data.json")) || Files.exists(dataFolder.resolve("Data.bin")) || Files.exists(dataFolder.resolve("Data.journal"));
+
+        if (!legacy && !Files.isDirectory(folder)) {
+            return;
+        }
+
+        // Reads the world files and the single file storage before it.
+        ShardedProcessStorage files = new ShardedProcessStorage(plugin, new BinaryProcessFormat(plugin), folder, 0, true, Integer.MAX_VALUE, 1);
+
+        List<RegenerationProcess> processes;
+        try {
+            files.migrateLegacy(dataFolder).join();
+            processes = files.readAll();
+        } finally {
+            files.close();
+        }
+
+        Map<SimpleLocation, RegenerationProcess> batch = new LinkedHashMap<>();
+        for (RegenerationProcess process : processes) {
+            if (process != null && process.getLocation() != null) {
+                batch.put(process.getLocation(), process);
+            }
+        }
+        write(batch);
+
+        Path migrated = dataFolder.resolve("Data.migrated");
+        if (Files.isDirectory(folder) && !Files.exists(migrated)) {
+            Files.move(folder, migrated);
+        }
+
+        log.info("Imported " + batch.size() + " process(es) into the database.");
+    }
+
+    @Override
+    public void close() {
+        flushPending();
+
+        writer.submit(() -> {
+            try {
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                log.log(Level.WARNING, "Could not close the database: " + e.getMessage(), e);
+            }
+        });
+
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warning("Process database did not finish writing in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -9,15 +9,18 @@ import nl.aurorion.blockregen.BlockRegenPlugin;
 import nl.aurorion.blockregen.BlockRegenPluginImpl;
 import nl.aurorion.blockregen.api.BlockRegenBlockRegenerationEvent;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import nl.aurorion.blockregen.material.MaterialPool;
 import nl.aurorion.blockregen.material.builtin.MinecraftMaterial;
 import nl.aurorion.blockregen.preset.BlockPreset;
 import nl.aurorion.blockregen.preset.FixedNumberValue;
 import nl.aurorion.blockregen.util.Locations;
+import nl.aurorion.blockregen.util.TimingWheel;
+import nl.aurorion.blockregen.version.api.Methods;
 import nl.aurorion.blockregen.version.api.NodeData;
 import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
-import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -43,6 +46,9 @@ public class RegenerationProcess {
     @Nullable
     private BlockRegenMaterial originalCustomMaterial;
 
+    // Built from the original material and data of processes stored before custom materials.
+    private transient BlockRegenMaterial legacyOriginalMaterial;
+
     @Getter
     private String regionName;
     @Getter
@@ -68,7 +74,15 @@ public class RegenerationProcess {
     @Setter
     private transient BlockRegenMaterial regenerateInto;
 
-    private transient BukkitTask task;
+    // Position in the expiry index of RegenerationManager, -1 when not indexed.
+    private transient int expiryIndex = -1;
+
+    // Entry in the regeneration scheduler, null when not scheduled.
+    private transient TimingWheel.Entry<RegenerationProcess> task;
+
+    // Used when loading from storage.
+    public RegenerationProcess() {
+    }
 
     public RegenerationProcess(Block block, BlockPreset preset, @NotNull BlockRegenMaterial originalMaterial) {
         this.id = UUID.randomUUID();
@@ -104,16 +118,17 @@ public class RegenerationProcess {
             }
 
             this.regenerationTime = System.currentTimeMillis() + timeLeft;
+            plugin.getRegenerationManager().updateExpiry(this);
 
             // No need to start a task when it's time to regenerate already.
             if (timeLeft == 0 || regenerationTime <= System.currentTimeMillis()) {
-                Bukkit.getScheduler().runTask(plugin, this::regenerate);
+                plugin.getRegenerationManager().getScheduler().enqueue(this);
                 log.fine(() -> "Regenerated the process upon start.");
                 return false;
             }
         }
 
-        Bukkit.getScheduler().runTask(plugin, this::replaceBlock);
+        plugin.getRegenerationManager().getMutationQueue().replace(this);
 
         // No regeneration will be happening. Don't start the task.
         if (!shouldRegenerate()) {
@@ -131,15 +146,12 @@ public class RegenerationProcess {
 
     private void startTask() {
         // Start the task
-        this.task = Bukkit.getScheduler().runTaskLater(BlockRegenPluginImpl.getInstance(), this::regenerate, timeLeft / 50);
+        BlockRegenPluginImpl.getInstance().getRegenerationManager().getScheduler().schedule(this, timeLeft / 50);
         log.fine(() -> String.format("Regenerate %s in %ds", this, timeLeft / 1000));
     }
 
     public void stop() {
-        if (task != null) {
-            task.cancel();
-            this.task = null;
-        }
+        BlockRegenPluginImpl.getInstance().getRegenerationManager().getScheduler().cancel(this);
     }
 
     /**
@@ -151,9 +163,7 @@ public class RegenerationProcess {
         log.fine(() -> "Regenerating " + this + "...");
 
         // Cancel the task if running.
-        if (task != null) {
-            task.cancel();
-        }
+        stop();
 
         BlockRegenPlugin plugin = BlockRegenPluginImpl.getInstance();
 
@@ -177,6 +187,7 @@ public class RegenerationProcess {
                     // Regenerate with the block below.
                     this.timeLeft = delay;
                     this.regenerationTime = System.currentTimeMillis() + timeLeft;
+                    plugin.getRegenerationManager().updateExpiry(this);
 
                     log.fine(() -> "Delaying " + this + " to wait for " + processBelow + " delay: " + delay);
 
@@ -200,15 +211,13 @@ public class RegenerationProcess {
             return;
         }
 
-        regenerateBlock();
+        plugin.getRegenerationManager().getMutationQueue().regenerate(this);
 
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             if (preset.getRegenerationParticle() != null) {
                 plugin.getParticleManager().displayParticle(preset.getRegenerationParticle(), block);
             }
         });
-
-        this.task = null;
     }
 
     /**
@@ -220,12 +229,7 @@ public class RegenerationProcess {
 
         // -- Regenerate farmland under crops
         if (regenerateInto.requiresFarmland()) {
-            Block under = block.getRelative(BlockFace.DOWN);
-            XMaterial underType = BlockRegenPluginImpl.getInstance().getVersionManager().getMethods().getType(under);
-
-            if (underType != XMaterial.FARMLAND) {
-                under.setType(Objects.requireNonNull(XMaterial.FARMLAND.get()));
-            }
+            placeFarmland();
         }
 
         regenerateInto.setType(block);
@@ -233,6 +237,7 @@ public class RegenerationProcess {
             getOriginalMaterial().applyData(block);
         }
         regenerateInto.applyData(block); // Override with configured data if any
+        BlockRegenPluginImpl.getInstance().getMaterialManager().invalidate(block);
         log.fine(() -> "Regenerated " + this);
     }
 
@@ -252,11 +257,7 @@ public class RegenerationProcess {
 
         // -- Place farmland under crops
         if (original.requiresFarmland()) {
-            Block under = block.getRelative(BlockFace.DOWN);
-            XMaterial underType = BlockRegenPluginImpl.getInstance().getVersionManager().getMethods().getType(under);
-            if (underType != XMaterial.FARMLAND) {
-                under.setType(Objects.requireNonNull(XMaterial.FARMLAND.get()));
-            }
+            placeFarmland();
         }
 
         try {
@@ -264,21 +265,18 @@ public class RegenerationProcess {
         } catch (Exception e) {
             log.fine("Failed to revert process " + this);
         }
+        BlockRegenPluginImpl.getInstance().getMaterialManager().invalidate(block);
 
         log.fine(() -> String.format("Reverted block for %s", this));
     }
 
-    // Has to be synchronized to run on the next tick. Otherwise, the block does not get replaced.
+    // Applied through the mutation queue on the next tick. Otherwise, the block does not get replaced.
     public void replaceBlock() {
         BlockRegenMaterial replaceMaterial = getReplaceMaterial();
 
         // -- Place farmland under crops
         if (replaceMaterial.requiresFarmland()) {
-            Block under = block.getRelative(BlockFace.DOWN);
-            XMaterial underType = BlockRegenPluginImpl.getInstance().getVersionManager().getMethods().getType(under);
-            if (underType != XMaterial.FARMLAND) {
-                under.setType(Objects.requireNonNull(XMaterial.FARMLAND.get()));
-            }
+            placeFarmland();
         }
 
         replaceMaterial.setType(block);
@@ -286,12 +284,23 @@ public class RegenerationProcess {
             getOriginalMaterial().applyData(block);
         }
         replaceMaterial.applyData(block); // Apply configured data if any
+        BlockRegenPluginImpl.getInstance().getMaterialManager().invalidate(block);
 
         // Otherwise skull textures wouldn't update.
-        Bukkit.getScheduler().runTaskLater(BlockRegenPluginImpl.getInstance(), () -> block.getState().update(true), 1L);
+        BlockRegenPluginImpl.getInstance().getRegenerationManager().getMutationQueue().updateState(this);
         log.fine(() -> "Replaced block for " + this);
     }
 
+    // Fix the farmland under crops, only when it's not there already.
+    private void placeFarmland() {
+        Block under = block.getRelative(BlockFace.DOWN);
+        Methods methods = BlockRegenPluginImpl.getInstance().getVersionManager().getMethods();
+
+        if (methods.getType(under) != XMaterial.FARMLAND) {
+            methods.setType(under, XMaterial.FARMLAND);
+        }
+    }
+
     @NotNull
     public BlockRegenMaterial getRegenerateInto() {
         // Make sure we always get something.
@@ -311,7 +320,7 @@ public class RegenerationProcess {
         // Make sure we always get something.
         if (replaceMaterial == null) {
             if (preset.getReplaceMaterial() == null) {
-                this.replaceMaterial = new MinecraftMaterial(BlockRegenPluginImpl.getInstance(), XMaterial.AIR, null);
+                this.replaceMaterial = MaterialPool.intern(new MinecraftMaterial(BlockRegenPluginImpl.getInstance(), XMaterial.AIR, null));
             } else {
                 this.replaceMaterial = preset.getReplaceMaterial().get();
             }
@@ -319,13 +328,30 @@ public class RegenerationProcess {
         return replaceMaterial;
     }
 
+    // Stored vanilla material, #getOriginalMaterial() resolves the material to use.
+    @Nullable
+    public XMaterial getOriginalMaterialType() {
+        return originalMaterial;
+    }
+
     @NotNull
     public BlockRegenMaterial getOriginalMaterial() {
         if (this.originalCustomMaterial != null) {
             return this.originalCustomMaterial;
         }
 
-        return new MinecraftMaterial(BlockRegenPluginImpl.getInstance(), this.originalMaterial, this.originalData);
+        if (this.legacyOriginalMaterial == null) {
+            this.legacyOriginalMaterial = MaterialPool.intern(new MinecraftMaterial(BlockRegenPluginImpl.getInstance(), this.originalMaterial, this.originalData));
+        }
+        return this.legacyOriginalMaterial;
+    }
+
+    /**
+     * Share equal materials and node data with other processes. Call after loading from storage.
+     */
+    public void intern() {
+        this.originalData = MaterialPool.intern(this.originalData);
+        this.originalCustomMaterial = MaterialPool.intern(this.originalCustomMaterial);
     }
 
     // Convert stored Location pointer to the Block at the location.
@@ -360,6 +386,35 @@ public class RegenerationProcess {
         return true;
     }
 
+    /**
+     * Time left until the regeneration at this moment. Running processes never return a negative value.
+     */
+    public long computeTimeLeft() {
+        if (regenerationTime == 0 || preset == null || !shouldRegenerate()) {
+            return timeLeft;
+        }
+        return Math.max(0, regenerationTime - System.currentTimeMillis());
+    }
+
+    /**
+     * Detached copy of the persisted state with the time left fixed at this moment. Safe to serialize from another
+     * thread while this process keeps running.
+     */
+    @NotNull
+    public RegenerationProcess snapshot() {
+        RegenerationProcess copy = new RegenerationProcess();
+        copy.id = this.id;
+        copy.location = this.location;
+        copy.originalMaterial = this.originalMaterial;
+        copy.originalData = this.originalData;
+        copy.originalCustomMaterial = this.originalCustomMaterial;
+        copy.regionName = this.regionName;
+        copy.worldName = this.worldName;
+        copy.presetName = this.presetName;
+        copy.timeLeft = computeTimeLeft();
+        return copy;
+    }
+
     public void updateTimeLeft(long timeLeft) {
         this.timeLeft = timeLeft;
         if (timeLeft > 0) {
@@ -370,7 +425,13 @@ public class RegenerationProcess {
     }
 
     public boolean isRunning() {
-        return task != null;
+        return task != null || BlockRegenPluginImpl.getInstance().getRegenerationManager().getScheduler().isQueued(this);
+    }
+
+    // Check without loading the chunk.
+    public boolean isChunkLoaded() {
+        World world = Bukkit.getWorld(location.getWorld());
+        return world != null && world.isChunkLoaded(location.getX() >> 4, location.getZ() >> 4);
     }
 
     public Block getBlock() {
@@ -399,7 +460,7 @@ public class RegenerationProcess {
     public String toString() {
         return String.format("{id=%s; task=%s; presetName=%s; worldName=%s; regionName=%s; block=%s; originalData=%s; originalMaterial=%s; originalCustomMaterial=%s; regenerateInto=%s; replaceMaterial=%s; timeLeft=%d; regenerationTime=%d}",
                 id,
-                task == null ? "null" : task.getTaskId(),
+                task == null ? "null" : task.getDeadline(),
                 presetName,
                 worldName,
                 regionName,
@@ -13,6 +13,13 @@ public class SimpleLocation {
     private String world;
     private int x, y, z;
 
+    public SimpleLocation(String world, int x, int y, int z) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
     public SimpleLocation(Block block) {
         if (block == null) {
             throw new IllegalArgumentException("SimpleLocation#block cannot be null.");
@@ -0,0 +1,346 @@
+package nl.aurorion.blockregen.region;
+
+import nl.aurorion.blockregen.regeneration.ProcessIndex;
+import nl.aurorion.blockregen.region.struct.RegenerationArea;
+import nl.aurorion.blockregen.region.struct.RegenerationRegion;
+import nl.aurorion.blockregen.region.struct.RegenerationWorld;
+import nl.aurorion.blockregen.util.BlockPositions;
+import nl.aurorion.blockregen.util.LongHashMap;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial index of the loaded areas.
+ * <p>
+ * Regions are put into buckets of the chunks they overlap, per world. Worlds, regions too large to bucket and regions
+ * without a world are kept in fallback lists. Every list is kept in the area priority order, so the first area
+ * containing a block is the one with the highest priority.
+ * <p>
+ * The result is summarized per chunk section (16x16x16): no area, one area covering the whole section, or mixed.
+ * Only mixed sections on area boundaries check the bounds of each block.
+ * <p>
+ * Modified only before being published in an {@link AreaSnapshot}, changes are made on a {@link #copy()}. Lookups
+ * are safe from any thread. The priorities are copied when an area is added or on {@link #sort()}, changing the
+ * priority of an area doesn't affect published indices.
+ */
+public class AreaIndex {
+
+    // Regions spanning more chunks than this are checked one by one instead.
+    static final int MAX_BUCKETED_CHUNKS = 4096;
+
+    // Drop the section summaries once there's this many, they're computed again when needed.
+    static final int MAX_SUMMARIES = 65536;
+
+    // Summary of a section no area intersects.
+    private static final Object NONE = new Object();
+
+    // Summary of a section where the area depends on the block.
+    private static final Object MIXED = new Object();
+
+    private static class WorldIndex {
+        private final LongHashMap<List<RegenerationArea>> chunks = new LongHashMap<>();
+        // World areas and large regions.
+        private final List<RegenerationArea> fallback = new ArrayList<>();
+        // NONE, MIXED or the area covering the section. Filled in by the readers.
+        private final Map<Long, Object> summaries = new ConcurrentHashMap<>();
+    }
+
+    private final Map<String, WorldIndex> worlds = new HashMap<>();
+
+    // Regions without a world apply to all of them.
+    private final List<RegenerationArea> global = new ArrayList<>();
+
+    // Where the area was put, so it can be removed even if its world is gone.
+    private static class Placement {
+        // Areas with the same priority keep the order they were added in.
+        private final long sequence;
+        private int priority;
+        @Nullable
+        private String world;
+        private boolean bucketed;
+
+        private Placement(long sequence, int priority) {
+            this.sequence = sequence;
+            this.priority = priority;
+        }
+
+        private Placement copy() {
+            Placement copy = new Placement(sequence, priority);
+            copy.world = world;
+            copy.bucketed = bucketed;
+            return copy;
+        }
+    }
+
+    private final Map<RegenerationArea, Placement> placements = new IdentityHashMap<>();
+
+    private long nextSequence = 0;
+
+    private final Comparator<RegenerationArea> order = Comparator.comparingInt((RegenerationArea area) -> {
+                Placement placement = placements.get(area);
+                return placement == null ? area.getPriority() : placement.priority;
+            }).reversed()
+            .thenComparingLong(area -> {
+                Placement placement = placements.get(area);
+                return placement == null ? Long.MAX_VALUE : placement.sequence;
+            });
+
+    @NotNull
+    public Comparator<RegenerationArea> getOrder() {
+        return order;
+    }
+
+    /**
+     * Return a copy to modify, without the section summaries.
+     */
+    @NotNull
+    public AreaIndex copy() {
+        AreaIndex copy = new AreaIndex();
+        for (Map.Entry<String, WorldIndex> entry : worlds.entrySet()) {
+            WorldIndex index = new WorldIndex();
+            entry.getValue().chunks.forEach((key, bucket) -> index.chunks.put(key, new ArrayList<>(bucket)));
+            index.fallback.addAll(entry.getValue().fallback);
+            copy.worlds.put(entry.getKey(), index);
+        }
+        copy.global.addAll(global);
+        placements.forEach((area, placement) -> copy.placements.put(area, placement.copy()));
+        copy.nextSequence = nextSequence;
+        return copy;
+    }
+
+    public void add(@NotNull RegenerationArea area) {
+        if (placements.containsKey(area)) {
+            return;
+        }
+        invalidate();
+
+        Placement placement = new Placement(nextSequence++, area.getPriority());
+        placements.put(area, placement);
+
+        if (area instanceof RegenerationWorld) {
+            placement.world = ((RegenerationWorld) area).getWorldName();
+            insert(world(placement.world).fallback, area);
+            return;
+        }
+
+        if (!(area instanceof RegenerationRegion)) {
+            insert(global, area);
+            return;
+        }
+
+        RegenerationRegion region = (RegenerationRegion) area;
+        World world = region.getMax().getWorld();
+        if (world == null) {
+            insert(global, area);
+            return;
+        }
+
+        placement.world = world.getName();
+        WorldIndex index = world(placement.world);
+        if (chunkCount(region) > MAX_BUCKETED_CHUNKS) {
+            insert(index.fallback, area);
+            return;
+        }
+
+        placement.bucketed = true;
+
+        forEachChunk(region, key -> {
+            List<RegenerationArea> bucket = index.chunks.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>(2);
+                index.chunks.put(key, bucket);
+            }
+            insert(bucket, area);
+        });
+    }
+
+    public void remove(@NotNull RegenerationArea area) {
+        Placement placement = placements.get(area);
+        if (placement == null) {
+            return;
+        }
+        invalidate();
+
+        WorldIndex index = placement.world == null ? null : worlds.get(placement.world);
+        if (index == null) {
+            global.remove(area);
+        } else if (placement.bucketed) {
+            forEachChunk((RegenerationRegion) area, key -> {
+                List<RegenerationArea> bucket = index.chunks.get(key);
+                if (bucket != null) {
+                    bucket.remove(area);
+                    if (bucket.isEmpty()) {
+                        index.chunks.remove(key);
+                    }
+                }
+            });
+        } else {
+            index.fallback.remove(area);
+        }
+
+        placements.remove(area);
+    }
+
+    /**
+     * Take the current priorities of the areas and restore the order.
+     */
+    public void sort() {
+        invalidate();
+        placements.forEach((area, placement) -> placement.priority = area.getPriority());
+        global.sort(order);
+        for (WorldIndex index : worlds.values()) {
+            index.fallback.sort(order);
+            index.chunks.forEachValue(bucket -> bucket.sort(order));
+        }
+    }
+
+    public void clear() {
+        worlds.clear();
+        global.clear();
+        placements.clear();
+    }
+
+    // Summaries have to be computed again after any change.
+    private void invalidate() {
+        for (WorldIndex index : worlds.values()) {
+            index.summaries.clear();
+        }
+    }
+
+    /**
+     * Return the area with the highest priority containing the block.
+     */
+    @Nullable
+    public RegenerationArea getArea(@NotNull World world, int x, int y, int z) {
+        WorldIndex index = worlds.get(world.getName());
+        if (index == null) {
+            // Only the regions without a world can apply.
+            return global.isEmpty() ? null : first(global, world, x, y, z, null);
+        }
+
+        long sectionKey = BlockPositions.pack(x >> 4, y >> 4, z >> 4);
+        Object summary = index.summaries.get(sectionKey);
+        if (summary == null) {
+            if (index.summaries.size() >= MAX_SUMMARIES) {
+                index.summaries.clear();
+            }
+            summary = summarize(index, x >> 4, y >> 4, z >> 4);
+            index.summaries.put(sectionKey, summary);
+        }
+
+        if (summary == NONE) {
+            return null;
+        }
+
+        if (summary != MIXED) {
+            return (RegenerationArea) summary;
+        }
+
+        List<RegenerationArea> bucket = index.chunks.get(ProcessIndex.chunkKey(x >> 4, z >> 4));
+        RegenerationArea best = bucket == null ? null : first(bucket, world, x, y, z, null);
+        best = first(index.fallback, world, x, y, z, best);
+        if (!global.isEmpty()) {
+            best = first(global, world, x, y, z, best);
+        }
+        return best;
+    }
+
+    // First area in the list containing the block, if it comes before the current best.
+    private RegenerationArea first(List<RegenerationArea> areas, World world, int x, int y, int z, RegenerationArea best) {
+        for (RegenerationArea area : areas) {
+            if (best != null && order.compare(area, best) >= 0) {
+                return best;
+            }
+
+            if (area.contains(world, x, y, z)) {
+                return area;
+            }
+        }
+        return best;
+    }
+
+    // The first area in priority order touching the section decides, unless it only covers a part of it.
+    private Object summarize(WorldIndex index, int sectionX, int sectionY, int sectionZ) {
+        List<RegenerationArea> candidates = new ArrayList<>(index.fallback);
+        List<RegenerationArea> bucket = index.chunks.get(ProcessIndex.chunkKey(sectionX, sectionZ));
+        if (bucket != null) {
+            candidates.addAll(bucket);
+        }
+        candidates.addAll(global);
+        candidates.sort(order);
+
+        int minX = sectionX << 4, minY = sectionY << 4, minZ = sectionZ << 4;
+        int maxX = minX + 15, maxY = minY + 15, maxZ = minZ + 15;
+
+        for (RegenerationArea area : candidates) {
+            if (area instanceof RegenerationWorld) {
+                return area;
+            }
+
+            if (!(area instanceof RegenerationRegion)) {
+                return MIXED;
+            }
+
+            // Blocks inside the bounds, same as RegenerationRegion#contains.
+            RegenerationRegion region = (RegenerationRegion) area;
+            int regionMinX = (int) Math.ceil(region.getMin().getX()), regionMaxX = (int) Math.floor(region.getMax().getX());
+            int regionMinY = (int) Math.ceil(region.getMin().getY()), regionMaxY = (int) Math.floor(region.getMax().getY());
+            int regionMinZ = (int) Math.ceil(region.getMin().getZ()), regionMaxZ = (int) Math.floor(region.getMax().getZ());
+
+            if (regionMaxX < minX || regionMinX > maxX || regionMaxY < minY || regionMinY > maxY || regionMaxZ < minZ || regionMinZ > maxZ) {
+                continue;
+            }
+
+            if (regionMinX <= minX && regionMaxX >= maxX && regionMinY <= minY && regionMaxY >= maxY && regionMinZ <= minZ && regionMaxZ >= maxZ) {
+                return area;
+            }
+            return MIXED;
+        }
+        return NONE;
+    }
+
+    private WorldIndex world(String name) {
+        return worlds.computeIfAbsent(name, k -> new WorldIndex());
+    }
+
+    private void insert(List<RegenerationArea> areas, RegenerationArea area) {
+        int i = 0;
+        while (i < areas.size() && order.compare(areas.get(i), area) <= 0) {
+            i++;
+        }
+        areas.add(i, area);
+    }
+
+    private static long chunkCount(RegenerationRegion region) {
+        long width = (region.getMax().getBlockX() >> 4) - (region.getMin().getBlockX() >> 4) + 1;
+        long length = (region.getMax().getBlockZ() >> 4) - (region.getMin().getBlockZ() >> 4) + 1;
+        return width * length;
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(long key);
+    }
+
+    private static void forEachChunk(RegenerationRegion region, ChunkConsumer consumer) {
+        int minX = region.getMin().getBlockX() >> 4;
+        int minZ = region.getMin().getBlockZ() >> 4;
+        int maxX = region.getMax().getBlockX() >> 4;
+        int maxZ = region.getMax().getBlockZ() >> 4;
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                consumer.accept(ProcessIndex.chunkKey(x, z));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package nl.aurorion.blockregen.region;
+
+import lombok.Getter;
+import nl.aurorion.blockregen.region.struct.RegenerationArea;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable state of the loaded areas: the areas in priority order, a name lookup and the spatial index.
+ * <p>
+ * Published by {@link RegionManager} through a volatile field. Readers never lock, every change builds a new snapshot.
+ * The order uses the priorities the areas had when they were added or last sorted.
+ */
+public class AreaSnapshot {
+
+    public static final AreaSnapshot EMPTY = new AreaSnapshot(0, new AreaIndex(), Collections.emptyList());
+
+    @Getter
+    private final long version;
+
+    // Sorted by priority, highest first.
+    @Getter
+    private final List<RegenerationArea> areas;
+
+    private final Map<String, RegenerationArea> byName;
+
+    @Getter
+    private final AreaIndex index;
+
+    private AreaSnapshot(long version, AreaIndex index, List<RegenerationArea> areas) {
+        this.version = version;
+        this.index = index;
+
+        List<RegenerationArea> sorted = new ArrayList<>(areas);
+        sorted.sort(index.getOrder());
+        this.areas = Collections.unmodifiableList(sorted);
+
+        Map<String, RegenerationArea> byName = new HashMap<>();
+        for (RegenerationArea area : sorted) {
+            byName.putIfAbsent(area.getName(), area);
+        }
+        this.byName = byName;
+    }
+
+    @Nullable
+    public RegenerationArea getArea(@NotNull String name) {
+        return byName.get(name);
+    }
+
+    public boolean exists(@NotNull String name) {
+        return byName.containsKey(name);
+    }
+
+    public int size() {
+        return areas.size();
+    }
+
+    /**
+     * Return a snapshot with the areas added. An area with the same name is replaced.
+     */
+    @NotNull
+    public AreaSnapshot with(@NotNull Collection<? extends RegenerationArea> added) {
+        AreaIndex index = this.index.copy();
+        List<RegenerationArea> areas = new ArrayList<>(this.areas);
+
+        for (RegenerationArea area : added) {
+            RegenerationArea previous = findByName(areas, area.getName());
+            if (previous != null) {
+                areas.remove(previous);
+                index.remove(previous);
+            }
+
+            areas.add(area);
+            index.add(area);
+        }
+        return new AreaSnapshot(version + 1, index, areas);
+    }
+
+    @NotNull
+    public AreaSnapshot with(@NotNull RegenerationArea area) {
+        return with(Collections.singletonList(area));
+    }
+
+    /**
+     * Return a snapshot without the area of the name.
+     */
+    @NotNull
+    public AreaSnapshot without(@NotNull String name) {
+        RegenerationArea area = byName.get(name);
+        if (area == null) {
+            return this;
+        }
+
+        AreaIndex index = this.index.copy();
+        index.remove(area);
+
+        List<RegenerationArea> areas = new ArrayList<>(this.areas);
+        areas.remove(area);
+        return new AreaSnapshot(version + 1, index, areas);
+    }
+
+    /**
+     * Return a snapshot ordered by the current priorities of the areas.
+     */
+    @NotNull
+    public AreaSnapshot sorted() {
+        AreaIndex index = this.index.copy();
+        index.sort();
+        return new AreaSnapshot(version + 1, index, areas);
+    }
+
+    @Nullable
+    private static RegenerationArea findByName(List<RegenerationArea> areas, String name) {
+        for (RegenerationArea area : areas) {
+            if (area.getName().equals(name)) {
+                return area;
+            }
+        }
+        return null;
+    }
+}
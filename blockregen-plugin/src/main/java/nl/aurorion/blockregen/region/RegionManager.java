@@ -12,6 +12,7 @@ import nl.aurorion.blockregen.region.struct.RegenerationRegion;
 import nl.aurorion.blockregen.region.struct.RegenerationWorld;
 import nl.aurorion.blockregen.util.Locations;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -26,7 +27,8 @@ public class RegionManager {
 
     private final BlockRegenPlugin plugin;
 
-    private final List<RegenerationArea> loadedAreas = new ArrayList<>();
+    // Replaced as a whole on every change, safe to read from any thread.
+    private volatile AreaSnapshot areas = AreaSnapshot.EMPTY;
 
     // Set of regions that failed to load.
     private final Set<RawRegion> failedRegions = new HashSet<>();
@@ -37,8 +39,13 @@ public class RegionManager {
         this.plugin = plugin;
     }
 
-    public void sort() {
-        loadedAreas.sort((o1, o2) -> Comparator.comparing(RegenerationArea::getPriority).reversed().compare(o1, o2));
+    public synchronized void sort() {
+        this.areas = areas.sorted();
+    }
+
+    @NotNull
+    public AreaSnapshot getSnapshot() {
+        return areas;
     }
 
     // ---- Selection
@@ -93,13 +100,15 @@ public class RegionManager {
     }
 
     public void load() {
-        this.loadedAreas.clear();
         plugin.getFiles().getRegions().load();
 
         FileConfiguration regions = plugin.getFiles().getRegions().getFileConfiguration();
 
         ConfigurationSection parentSection = regions.getConfigurationSection("Regions");
 
+        // Published at once when everything is loaded.
+        List<RegenerationArea> loaded = new ArrayList<>();
+
         if (parentSection != null) {
             for (String name : parentSection.getKeys(false)) {
                 ConfigurationSection section = parentSection.getConfigurationSection(name);
@@ -111,7 +120,7 @@ public class RegionManager {
 
                 // Load a world region
                 if (section.isSet("worldName")) {
-                    loadWorldRegion(section, name);
+                    loaded.add(loadWorldRegion(section, name));
                     continue;
                 }
 
@@ -121,12 +130,18 @@ public class RegionManager {
                 if (rawRegion == null) {
                     continue;
                 }
-                loadRegion(rawRegion);
+
+                RegenerationRegion region = loadRegion(rawRegion);
+                if (region != null) {
+                    loaded.add(region);
+                }
             }
         }
 
-        this.sort();
-        log.info("Loaded " + this.loadedAreas.size() + " region(s)...");
+        synchronized (this) {
+            this.areas = AreaSnapshot.EMPTY.with(loaded);
+        }
+        log.info("Loaded " + this.areas.size() + " region(s)...");
     }
 
     public boolean isRetry() {
@@ -140,16 +155,31 @@ public class RegionManager {
 
         log.info("Reattempting to load regions...");
         int count = failedRegions.size();
-        failedRegions.removeIf(rawRegion -> rawRegion.isReattempt() && loadRegion(rawRegion));
+        failedRegions.removeIf(rawRegion -> {
+            if (!rawRegion.isReattempt()) {
+                return false;
+            }
+
+            RegenerationRegion region = loadRegion(rawRegion);
+            if (region == null) {
+                return false;
+            }
+
+            synchronized (this) {
+                this.areas = areas.with(region);
+            }
+            return true;
+        });
         log.info("Loaded " + (count - failedRegions.size()) + " of failed regions.");
     }
 
-    private boolean loadRegion(RawRegion rawRegion) {
+    @Nullable
+    private RegenerationRegion loadRegion(RawRegion rawRegion) {
         RegenerationRegion region = rawRegion.build();
 
         if (region == null) {
             log.warning("Could not load region " + rawRegion.getName() + ", world " + rawRegion.getMax() + " still not loaded.");
-            return false;
+            return null;
         }
 
         // Attach presets
@@ -163,10 +193,8 @@ public class RegionManager {
             region.addPreset(presetName);
         }
 
-        this.loadedAreas.add(region);
-        this.sort();
         log.fine(() -> "Loaded region " + region);
-        return true;
+        return region;
     }
 
     @Nullable
@@ -200,7 +228,8 @@ public class RegionManager {
         return rawRegion;
     }
 
-    private void loadWorldRegion(@NotNull ConfigurationSection section, @NotNull String name) {
+    @NotNull
+    private RegenerationWorld loadWorldRegion(@NotNull ConfigurationSection section, @NotNull String name) {
         String worldName = section.getString("worldName");
 
         RegenerationWorld world = new RegenerationWorld(name, worldName);
@@ -220,7 +249,7 @@ public class RegionManager {
         }
 
         log.fine(() -> String.format("Loaded regeneration world %s", world));
-        this.loadedAreas.add(world);
+        return world;
     }
 
     // Only attempt to reload the presets configured as they could've changed.
@@ -228,7 +257,7 @@ public class RegionManager {
     // -- Changed to preset names for regions, no need to reload, just print a warning when a preset is not loaded.
     public void reload() {
 
-        for (RegenerationArea area : this.loadedAreas) {
+        for (RegenerationArea area : this.areas.getAreas()) {
             Collection<String> presets = area.getPresets();
 
             // Attach presets
@@ -242,7 +271,7 @@ public class RegionManager {
         }
 
         this.sort();
-        log.info("Reloaded " + this.loadedAreas.size() + " region(s)...");
+        log.info("Reloaded " + this.areas.size() + " region(s)...");
     }
 
     public void save() {
@@ -264,14 +293,15 @@ public class RegionManager {
             regionSection.set("Disable-Other-Break", rawRegion.getDisableOtherBreak());
         }
 
-        for (RegenerationArea area : new HashSet<>(this.loadedAreas)) {
+        AreaSnapshot areas = this.areas;
+        for (RegenerationArea area : areas.getAreas()) {
             ConfigurationSection section = root.createSection(area.getName());
             area.serialize(section);
         }
 
         plugin.getFiles().getRegions().save();
 
-        log.fine(() -> "Saved " + (this.loadedAreas.size() + this.failedRegions.size()) + " area(s)...");
+        log.fine(() -> "Saved " + (areas.size() + this.failedRegions.size()) + " area(s)...");
     }
 
     private ConfigurationSection ensureRegionsSection(FileConfiguration configuration) {
@@ -279,45 +309,40 @@ public class RegionManager {
     }
 
     public boolean exists(String name) {
-        return this.loadedAreas.stream().anyMatch(r -> r.getName().equals(name));
+        return this.areas.exists(name);
     }
 
     public RegenerationArea getArea(@NotNull String name) {
-        return this.loadedAreas.stream().filter(r -> r.getName().equals(name)).findAny().orElse(null);
+        return this.areas.getArea(name);
     }
 
-    public void removeArea(@NotNull String name) {
-        Iterator<RegenerationArea> it = loadedAreas.iterator();
-        while (it.hasNext()) {
-            RegenerationArea area = it.next();
-
-            if (Objects.equals(area.getName(), name)) {
-                it.remove();
-                break;
-            }
-        }
-        this.sort();
+    public synchronized void removeArea(@NotNull String name) {
+        this.areas = areas.without(name);
     }
 
     @Nullable
     public RegenerationArea getArea(@NotNull Block block) {
-        for (RegenerationArea area : this.loadedAreas) {
-            if (area.contains(block)) {
-                return area;
-            }
-        }
-        return null;
+        return areas.getIndex().getArea(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Return the area with the highest priority at the position. Answered from a per-section summary in most cases.
+     */
+    @Nullable
+    public RegenerationArea getArea(@NotNull World world, int x, int y, int z) {
+        return areas.getIndex().getArea(world, x, y, z);
     }
 
     public void addArea(@NotNull RegenerationArea region) {
-        this.loadedAreas.add(region);
-        this.sort();
+        synchronized (this) {
+            this.areas = areas.with(region);
+        }
         log.fine(() -> "Added area " + region);
         save();
     }
 
     @NotNull
     public List<RegenerationArea> getLoadedAreas() {
-        return Collections.unmodifiableList(loadedAreas);
+        return areas.getAreas();
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package nl.aurorion.blockregen.region.struct;
 
 import lombok.Getter;
 import lombok.Setter;
+import nl.aurorion.blockregen.preset.PresetIndex;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 import org.jetbrains.annotations.NotNull;
@@ -20,7 +22,6 @@ public abstract class RegenerationArea {
     protected final Set<String> presets = new HashSet<>();
 
     @Getter
-    @Setter
     protected boolean all = true;
 
     @Getter
@@ -34,11 +35,46 @@ public abstract class RegenerationArea {
     @Setter
     protected int priority = 1;
 
+    // Presets allowed in this area, compiled from the preset index it was built from.
+    private transient volatile Compiled compiled;
+
+    private static class Compiled {
+        private final PresetIndex source;
+        private final PresetIndex presets;
+
+        private Compiled(PresetIndex source, PresetIndex presets) {
+            this.source = source;
+            this.presets = presets;
+        }
+    }
+
     public RegenerationArea(String name) {
         this.name = name;
     }
 
-    public abstract boolean contains(@NotNull Block block);
+    /**
+     * Return the presets of the index allowed in this area. Compiled again after the area or the presets change.
+     */
+    @NotNull
+    public PresetIndex getPresetIndex(@NotNull PresetIndex index) {
+        Compiled compiled = this.compiled;
+        if (compiled == null || compiled.source != index) {
+            compiled = new Compiled(index, all ? index : index.filter(preset -> presets.contains(preset.getName())));
+            this.compiled = compiled;
+        }
+        return compiled.presets;
+    }
+
+    public void setAll(boolean all) {
+        this.all = all;
+        this.compiled = null;
+    }
+
+    public boolean contains(@NotNull Block block) {
+        return contains(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    public abstract boolean contains(@NotNull World world, int x, int y, int z);
 
     public void serialize(ConfigurationSection section) {
         section.set("All", this.all);
@@ -58,14 +94,17 @@ public abstract class RegenerationArea {
 
     public void addPreset(@NotNull String preset) {
         this.presets.add(preset);
+        this.compiled = null;
     }
 
     public void removePreset(@NotNull String preset) {
         this.presets.remove(preset);
+        this.compiled = null;
     }
 
     public void clearPresets() {
         this.presets.clear();
+        this.compiled = null;
     }
 
     public @NotNull Collection<String> getPresets() {
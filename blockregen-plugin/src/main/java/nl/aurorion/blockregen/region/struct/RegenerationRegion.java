@@ -3,7 +3,7 @@ package nl.aurorion.blockregen.region.struct;
 import lombok.Getter;
 import nl.aurorion.blockregen.util.Locations;
 import org.bukkit.Location;
-import org.bukkit.block.Block;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 import org.jetbrains.annotations.NotNull;
 
@@ -21,16 +21,16 @@ public class RegenerationRegion extends RegenerationArea {
     }
 
     @Override
-    public boolean contains(@NotNull Block block) {
+    public boolean contains(@NotNull World world, int x, int y, int z) {
         // Check world
-        if (max.getWorld() != null && !max.getWorld().equals(block.getWorld())) {
+        if (max.getWorld() != null && !max.getWorld().equals(world)) {
             return false;
         }
 
         // Check coordinates
-        return block.getX() <= max.getX() && block.getX() >= min.getX()
-                && block.getZ() <= max.getZ() && block.getZ() >= min.getZ()
-                && block.getY() <= max.getY() && block.getY() >= min.getY();
+        return x <= max.getX() && x >= min.getX()
+                && z <= max.getZ() && z >= min.getZ()
+                && y <= max.getY() && y >= min.getY();
     }
 
     @Override
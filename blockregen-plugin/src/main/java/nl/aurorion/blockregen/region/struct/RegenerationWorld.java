@@ -1,7 +1,7 @@
 package nl.aurorion.blockregen.region.struct;
 
 import lombok.Getter;
-import org.bukkit.block.Block;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 import org.jetbrains.annotations.NotNull;
 
@@ -16,8 +16,8 @@ public class RegenerationWorld extends RegenerationArea {
     }
 
     @Override
-    public boolean contains(@NotNull Block block) {
-        return block.getWorld().getName().equals(this.worldName);
+    public boolean contains(@NotNull World world, int x, int y, int z) {
+        return world.getName().equals(this.worldName);
     }
 
     @Override
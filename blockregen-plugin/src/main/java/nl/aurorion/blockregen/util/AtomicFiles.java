@@ -0,0 +1,96 @@
+package nl.aurorion.blockregen.util;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.java.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Crash-safe file replacement.
+ * <p>
+ * The new content is written into a temporary file, synced to disk and moved over the target. The previous versions
+ * are kept as numbered backups ({@code Data.bin.1} being the newest).
+ */
+@Log
+@UtilityClass
+public class AtomicFiles {
+
+    @FunctionalInterface
+    public interface Writer {
+        void write(@NotNull Path path) throws IOException;
+    }
+
+    @NotNull
+    public Path backup(@NotNull Path target, int generation) {
+        return target.resolveSibling(target.getFileName() + "." + generation);
+    }
+
+    /**
+     * Replace the target with the output of the writer, keeping the given amount of previous versions.
+     */
+    public void write(@NotNull Path target, int backups, @NotNull Writer writer) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try {
+            writer.write(temp);
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        // Shift the backups, the oldest one falls off.
+        if (backups > 0 && Files.exists(target)) {
+            for (int generation = backups - 1; generation > 0; generation--) {
+                Path from = backup(target, generation);
+                if (Files.exists(from)) {
+                    Files.move(from, backup(target, generation + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            // Renamed, not copied. A crash before the new one is moved in leaves it as the newest backup.
+            move(target, backup(target, 1));
+        }
+
+        move(temp, target);
+    }
+
+    private void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.fine(() -> "Atomic move not supported for " + to + ", replacing it.");
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Return the target and its existing backups from the newest to the oldest.
+     */
+    @NotNull
+    public List<Path> generations(@NotNull Path target, int backups) {
+        List<Path> paths = new ArrayList<>();
+        if (Files.exists(target)) {
+            paths.add(target);
+        }
+
+        for (int generation = 1; generation <= backups; generation++) {
+            Path backup = backup(target, generation);
+            if (Files.exists(backup)) {
+                paths.add(backup);
+            }
+        }
+        return paths;
+    }
+}
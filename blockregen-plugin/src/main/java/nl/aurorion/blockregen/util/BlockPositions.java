@@ -0,0 +1,40 @@
+package nl.aurorion.blockregen.util;
+
+import lombok.experimental.UtilityClass;
+import org.bukkit.block.Block;
+
+/**
+ * Packs block coordinates into a single long. 26 bits for x and z, 12 bits for y.
+ */
+@UtilityClass
+public class BlockPositions {
+
+    private static final int XZ_BITS = 26;
+    private static final int Y_BITS = 12;
+
+    private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+
+    private static final int X_SHIFT = XZ_BITS + Y_BITS;
+    private static final int Z_SHIFT = Y_BITS;
+
+    public static long pack(int x, int y, int z) {
+        return ((x & XZ_MASK) << X_SHIFT) | ((z & XZ_MASK) << Z_SHIFT) | (y & Y_MASK);
+    }
+
+    public static long pack(Block block) {
+        return pack(block.getX(), block.getY(), block.getZ());
+    }
+
+    public static int unpackX(long key) {
+        return (int) (key >> X_SHIFT);
+    }
+
+    public static int unpackY(long key) {
+        return (int) (key << (64 - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    public static int unpackZ(long key) {
+        return (int) (key << (64 - X_SHIFT) >> (64 - XZ_BITS));
+    }
+}
@@ -4,6 +4,8 @@ import com.google.common.base.Strings;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.Getter;
 import lombok.extern.java.Log;
 import org.jetbrains.annotations.NotNull;
@@ -22,6 +24,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 /**
@@ -142,6 +145,32 @@ public class GsonHelper {
         });
     }
 
+    /**
+     * Read a json array element by element without loading the whole document. Null elements are skipped.
+     *
+     * @param consumer Receives the parsed elements in order.
+     */
+    public <T> void readArray(@NotNull JsonReader reader, @NotNull Class<T> innerClazz, @NotNull Consumer<T> consumer) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            T element = gson.fromJson(reader, innerClazz);
+            if (element != null)
+                consumer.accept(element);
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Write the elements as a json array one by one without building the whole document.
+     */
+    public <T> void writeArray(@NotNull JsonWriter writer, @NotNull Iterable<T> input, @NotNull Class<T> innerClazz) throws IOException {
+        writer.beginArray();
+        for (T element : input) {
+            gson.toJson(element, innerClazz, writer);
+        }
+        writer.endArray();
+    }
+
     /**
      * Asynchronously save data to json.
      *
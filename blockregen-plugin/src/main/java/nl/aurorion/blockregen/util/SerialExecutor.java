@@ -0,0 +1,35 @@
+package nl.aurorion.blockregen.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the submitted tasks one after another in the order they were submitted, on threads of a shared executor.
+ * A failing task doesn't stop the following ones.
+ */
+public class SerialExecutor implements Executor {
+
+    private final Executor executor;
+
+    // Completes once the last submitted task finished. Guarded by this.
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    public SerialExecutor(@NotNull Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(@NotNull Runnable command) {
+        tail = tail.handle((result, e) -> null).thenRunAsync(command, executor);
+    }
+
+    /**
+     * Return a future that completes once all the tasks submitted so far have finished.
+     */
+    @NotNull
+    public synchronized CompletableFuture<Void> idle() {
+        return tail.handle((result, e) -> null);
+    }
+}
@@ -0,0 +1,200 @@
+package nl.aurorion.blockregen.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel keyed by ticks.
+ * <p>
+ * Scheduling and cancelling is O(1), advancing the wheel by one tick only touches the entries due in that tick (and
+ * occasionally cascades a slot of an upper level down). Not thread-safe, meant to be driven from a single thread.
+ *
+ * @param <T> Type of the scheduled values.
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    // Longest delay the wheel can hold, anything above is clamped.
+    public static final long MAX_DELAY = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    public static final class Entry<T> {
+        private final T value;
+        private long deadline;
+
+        private Entry<T> prev;
+        private Entry<T> next;
+
+        // Index of the slot this entry is linked into, -1 when not scheduled.
+        private int slot = -1;
+
+        private Entry(T value) {
+            this.value = value;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isScheduled() {
+            return slot != -1;
+        }
+    }
+
+    // Heads of the doubly linked slot lists, level-major.
+    @SuppressWarnings("unchecked")
+    private final Entry<T>[] slots = (Entry<T>[]) new Entry[WHEEL_SIZE * LEVELS];
+
+    private long currentTick = 0;
+
+    private int size = 0;
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Schedule the value to be expired after {@code delay} ticks. A delay lower than 1 expires on the next tick.
+     */
+    @NotNull
+    public Entry<T> schedule(@NotNull T value, long delay) {
+        Entry<T> entry = new Entry<>(value);
+        entry.deadline = currentTick + Math.min(Math.max(delay, 1), MAX_DELAY);
+        link(entry);
+        size++;
+        return entry;
+    }
+
+    /**
+     * Remove the entry from the wheel. Returns false if the entry already expired or was cancelled.
+     */
+    public boolean cancel(@NotNull Entry<T> entry) {
+        if (!entry.isScheduled()) {
+            return false;
+        }
+
+        unlink(entry);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advance the wheel by one tick and pass every value that is due to {@code expired}.
+     * <p>
+     * Entries are detached before the consumer is called, scheduling new values from the consumer is safe.
+     */
+    public void advance(@NotNull Consumer<T> expired) {
+        currentTick++;
+
+        if ((currentTick & WHEEL_MASK) == 0) {
+            cascade(1);
+        }
+
+        int index = (int) (currentTick & WHEEL_MASK);
+        Entry<T> entry = slots[index];
+        slots[index] = null;
+
+        while (entry != null) {
+            Entry<T> next = entry.next;
+
+            entry.prev = null;
+            entry.next = null;
+            entry.slot = -1;
+            size--;
+
+            expired.accept(entry.value);
+            entry = next;
+        }
+    }
+
+    /**
+     * Remove all the entries without expiring them.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            Entry<T> entry = slots[i];
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                entry.prev = null;
+                entry.next = null;
+                entry.slot = -1;
+                entry = next;
+            }
+            slots[i] = null;
+        }
+        size = 0;
+    }
+
+    // Move the entries of the current slot on this level down to the lower levels.
+    private void cascade(int level) {
+        int index = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+
+        if (index == 0 && level + 1 < LEVELS) {
+            cascade(level + 1);
+        }
+
+        int slot = level * WHEEL_SIZE + index;
+
+        Entry<T> entry = slots[slot];
+        slots[slot] = null;
+
+        while (entry != null) {
+            Entry<T> next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            link(entry);
+            entry = next;
+        }
+    }
+
+    private void link(Entry<T> entry) {
+        long remaining = entry.deadline - currentTick;
+
+        int level = 0;
+        while (level < LEVELS - 1 && remaining >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+
+        int slot = level * WHEEL_SIZE + (int) ((entry.deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+
+        Entry<T> head = slots[slot];
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        slots[slot] = entry;
+        entry.slot = slot;
+    }
+
+    private void unlink(Entry<T> entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            slots[entry.slot] = entry.next;
+        }
+
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+
+        entry.prev = null;
+        entry.next = null;
+        entry.slot = -1;
+    }
+}
@@ -0,0 +1,127 @@
+package nl.aurorion.blockregen;
+
+import nl.aurorion.blockregen.region.AreaIndex;
+import nl.aurorion.blockregen.region.struct.RegenerationRegion;
+import nl.aurorion.blockregen.region.struct.RegenerationWorld;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AreaIndexTests {
+
+    private final World world = world("world");
+
+    private final World other = world("other");
+
+    // Only the name and identity of the world are used.
+    private static World world(String name) {
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class[]{World.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                case "toString":
+                    return name;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private RegenerationRegion region(String name, int priority, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        RegenerationRegion region = new RegenerationRegion(name, new Location(world, minX, minY, minZ), new Location(world, maxX, maxY, maxZ));
+        region.setPriority(priority);
+        return region;
+    }
+
+    @Test
+    public void findsContainingRegion() {
+        RegenerationRegion mine = region("mine", 1, 0, 0, 0, 40, 64, 40);
+
+        AreaIndex index = new AreaIndex();
+        index.add(mine);
+
+        assertSame(mine, index.getArea(world, 20, 30, 20));
+        assertSame(mine, index.getArea(world, 40, 64, 40));
+        assertNull(index.getArea(world, 41, 30, 20));
+        assertNull(index.getArea(world, 20, 65, 20));
+        assertNull(index.getArea(world, -1, 30, 20));
+        assertNull(index.getArea(other, 20, 30, 20));
+    }
+
+    @Test
+    public void prefersHigherPriority() {
+        // Too large to bucket by chunk.
+        RegenerationRegion outer = region("outer", 1, -2000, 0, -2000, 2000, 100, 2000);
+        RegenerationRegion inner = region("inner", 5, 10, 10, 10, 20, 20, 20);
+        RegenerationWorld whole = new RegenerationWorld("whole", "world");
+        whole.setPriority(0);
+
+        AreaIndex index = new AreaIndex();
+        index.add(whole);
+        index.add(outer);
+        index.add(inner);
+
+        assertSame(inner, index.getArea(world, 15, 15, 15));
+        assertSame(outer, index.getArea(world, 25, 15, 15));
+        assertSame(whole, index.getArea(world, 5000, 15, 15));
+        assertNull(index.getArea(other, 15, 15, 15));
+    }
+
+    @Test
+    public void summarizesSections() {
+        // Covers the section at 0, 0, 0 and a part of the one next to it.
+        RegenerationRegion region = region("region", 1, 0, 0, 0, 20, 15, 15);
+
+        AreaIndex index = new AreaIndex();
+        index.add(region);
+
+        // The second round is answered from the summaries.
+        for (int i = 0; i < 2; i++) {
+            assertSame(region, index.getArea(world, 0, 0, 0));
+            assertSame(region, index.getArea(world, 15, 15, 15));
+            assertSame(region, index.getArea(world, 20, 5, 5));
+            assertNull(index.getArea(world, 21, 5, 5));
+            assertNull(index.getArea(world, 5, 16, 5));
+        }
+    }
+
+    @Test
+    public void keepsPrioritiesUntilSorted() {
+        RegenerationRegion low = region("low", 1, 0, 0, 0, 15, 15, 15);
+        RegenerationRegion high = region("high", 5, 0, 0, 0, 15, 15, 15);
+
+        AreaIndex index = new AreaIndex();
+        index.add(low);
+        index.add(high);
+
+        AreaIndex copy = index.copy();
+        low.setPriority(10);
+
+        assertSame(high, copy.getArea(world, 5, 5, 5));
+
+        copy.sort();
+        assertSame(low, copy.getArea(world, 5, 5, 5));
+        assertSame(high, index.getArea(world, 5, 5, 5));
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        RegenerationRegion region = region("region", 1, 0, 0, 0, 15, 15, 15);
+
+        AreaIndex index = new AreaIndex();
+        index.add(region);
+
+        AreaIndex copy = index.copy();
+        copy.remove(region);
+
+        assertSame(region, index.getArea(world, 5, 5, 5));
+        assertNull(copy.getArea(world, 5, 5, 5));
+    }
+}
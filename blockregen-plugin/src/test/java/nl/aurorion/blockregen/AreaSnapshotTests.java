@@ -0,0 +1,56 @@
+package nl.aurorion.blockregen;
+
+import nl.aurorion.blockregen.region.AreaSnapshot;
+import nl.aurorion.blockregen.region.struct.RegenerationArea;
+import nl.aurorion.blockregen.region.struct.RegenerationWorld;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AreaSnapshotTests {
+
+    private static RegenerationWorld world(String name, int priority) {
+        RegenerationWorld world = new RegenerationWorld(name, "world");
+        world.setPriority(priority);
+        return world;
+    }
+
+    @Test
+    public void keepsPriorityOrder() {
+        RegenerationWorld low = world("low", 1);
+        RegenerationWorld high = world("high", 5);
+        RegenerationWorld other = world("other", 1);
+
+        AreaSnapshot snapshot = AreaSnapshot.EMPTY.with(Arrays.asList(low, high, other));
+
+        // Same priority keeps the order of adding.
+        assertEquals(Arrays.<RegenerationArea>asList(high, low, other), snapshot.getAreas());
+
+        low.setPriority(10);
+        assertEquals(Arrays.<RegenerationArea>asList(low, high, other), snapshot.sorted().getAreas());
+
+        // Published snapshots keep the priorities they were built with.
+        assertEquals(Arrays.<RegenerationArea>asList(high, low, other), snapshot.getAreas());
+        assertEquals(Arrays.<RegenerationArea>asList(high, low, other), snapshot.with(world("added", 0)).getAreas().subList(0, 3));
+    }
+
+    @Test
+    public void looksUpByName() {
+        RegenerationWorld first = world("mine", 1);
+        RegenerationWorld replaced = world("mine", 2);
+
+        AreaSnapshot snapshot = AreaSnapshot.EMPTY.with(first);
+        AreaSnapshot next = snapshot.with(replaced);
+
+        assertSame(first, snapshot.getArea("mine"));
+        assertSame(replaced, next.getArea("mine"));
+        assertEquals(1, next.size());
+
+        AreaSnapshot removed = next.without("mine");
+        assertFalse(removed.exists("mine"));
+        assertTrue(next.exists("mine"));
+        assertTrue(removed.getVersion() > next.getVersion());
+    }
+}
@@ -0,0 +1,195 @@
+package nl.aurorion.blockregen;
+
+import com.cryptomorin.xseries.XMaterial;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import nl.aurorion.blockregen.mock.MockBlockRegenPlugin;
+import nl.aurorion.blockregen.mock.MockNodeData;
+import nl.aurorion.blockregen.regeneration.storage.BinaryProcessFormat;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import nl.aurorion.blockregen.util.GsonHelper;
+import nl.aurorion.blockregen.util.SubclassAdapter;
+import nl.aurorion.blockregen.version.api.NodeData;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryProcessFormatTests {
+
+    // Node data and custom materials are stored as json.
+    private final GsonHelper gsonHelper = new GsonHelper(new GsonBuilder()
+            .registerTypeHierarchyAdapter(NodeData.class, new SubclassAdapter<>(new Gson())));
+
+    private final BlockRegenPlugin plugin = new MockBlockRegenPlugin() {
+        @Override
+        public GsonHelper getGsonHelper() {
+            return gsonHelper;
+        }
+    };
+
+    private final BinaryProcessFormat format = new BinaryProcessFormat(plugin);
+
+    private RegenerationProcess process(int x, int y, int z, String region, String preset, long timeLeft) {
+        RegenerationProcess process = new RegenerationProcess();
+        process.setId(UUID.randomUUID());
+        process.setLocation(new SimpleLocation("world", x, y, z));
+        process.setWorldName("world");
+        process.setRegionName(region);
+        process.setPresetName(preset);
+        process.setOriginalMaterial(XMaterial.STONE);
+        process.setTimeLeft(timeLeft);
+        return process;
+    }
+
+    private List<RegenerationProcess> decode(byte[] data) throws IOException {
+        List<RegenerationProcess> processes = new ArrayList<>();
+        format.decode(ByteBuffer.wrap(data), processes::add);
+        return processes;
+    }
+
+    private static void assertSameState(RegenerationProcess expected, RegenerationProcess actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getLocation(), actual.getLocation());
+        assertEquals(expected.getWorldName(), actual.getWorldName());
+        assertEquals(expected.getRegionName(), actual.getRegionName());
+        assertEquals(expected.getPresetName(), actual.getPresetName());
+        assertEquals(expected.getOriginalMaterialType(), actual.getOriginalMaterialType());
+        assertEquals(expected.getTimeLeft(), actual.getTimeLeft());
+    }
+
+    @Test
+    public void roundTripsProcesses() throws IOException {
+        RegenerationProcess first = process(-1234567, -64, 42, "mine", "ores", 5000);
+        first.setOriginalData(new MockNodeData());
+
+        // Null names, over the int range.
+        RegenerationProcess second = process(0, 320, -1, null, null, 40L * 24 * 60 * 60 * 1000);
+
+        List<RegenerationProcess> decoded = decode(format.encode(Arrays.asList(first, second)));
+
+        assertEquals(2, decoded.size());
+        assertSameState(first, decoded.get(0));
+        assertSameState(second, decoded.get(1));
+
+        assertInstanceOf(MockNodeData.class, decoded.get(0).getOriginalData());
+        assertNull(decoded.get(1).getOriginalData());
+    }
+
+    @Test
+    public void reusesDictionaryEntries() throws IOException {
+        List<RegenerationProcess> processes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            RegenerationProcess process = process(i, 10, -i, "quarry", "ores", 1000);
+            process.setOriginalData(new MockNodeData());
+            processes.add(process);
+        }
+
+        byte[] data = format.encode(processes);
+
+        // Stored once, referenced by every record.
+        assertEquals(1, count(data, "quarry"));
+        assertEquals(1, count(data, MockNodeData.class.getName()));
+
+        List<RegenerationProcess> decoded = decode(data);
+        assertEquals(100, decoded.size());
+        for (int i = 0; i < 100; i++) {
+            assertSameState(processes.get(i), decoded.get(i));
+            assertSame(decoded.get(0).getOriginalData(), decoded.get(i).getOriginalData());
+        }
+    }
+
+    @Test
+    public void storesSnapshotTime() throws IOException {
+        Path path = Files.createTempFile("processes", ".bin");
+        try {
+            format.write(Arrays.asList(process(1, 2, 3, "mine", "ores", 1000)), 123456789L, path);
+
+            List<RegenerationProcess> processes = new ArrayList<>();
+            assertEquals(123456789L, format.read(path, processes::add));
+            assertEquals(1, processes.size());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void readsVersionOne() throws IOException {
+        RegenerationProcess process = process(5, 6, 7, "mine", "ores", 1000);
+        byte[] data = format.encode(Arrays.asList(process));
+
+        // Version 1 had no snapshot time after the version byte.
+        byte[] old = new byte[data.length - 8];
+        System.arraycopy(data, 0, old, 0, 5);
+        System.arraycopy(data, 13, old, 5, data.length - 13);
+        old[4] = 1;
+
+        List<RegenerationProcess> processes = new ArrayList<>();
+        assertEquals(-1, format.decode(ByteBuffer.wrap(old), processes::add));
+        assertEquals(1, processes.size());
+        assertSameState(process, processes.get(0));
+    }
+
+    @Test
+    public void rejectsNewerVersion() {
+        byte[] data = format.encode(Arrays.asList(process(1, 2, 3, "mine", "ores", 1000)));
+        data[4]++;
+
+        IOException e = assertThrows(IOException.class, () -> decode(data));
+        assertTrue(e.getMessage().contains("newer"));
+    }
+
+    @Test
+    public void rejectsCorruptData() {
+        byte[] data = format.encode(Arrays.asList(
+                process(1, 2, 3, "mine", "ores", 1000),
+                process(4, 5, 6, null, "ores", 2000)));
+
+        // Not a process blob.
+        byte[] magic = data.clone();
+        magic[0] = 0;
+        assertThrows(IOException.class, () -> decode(magic));
+
+        // Cut anywhere after the magic.
+        for (int length = 4; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IOException.class, () -> decode(truncated), "truncated to " + length);
+        }
+
+        // Overlong varints.
+        byte[] garbage = data.clone();
+        Arrays.fill(garbage, 13, garbage.length, (byte) 0xFF);
+        assertThrows(IOException.class, () -> decode(garbage));
+    }
+
+    @Test
+    public void decodesEmptyData() throws IOException {
+        assertTrue(decode(new byte[0]).isEmpty());
+        assertTrue(decode(format.encode(new ArrayList<>())).isEmpty());
+    }
+
+    private static int count(byte[] data, String value) {
+        byte[] needle = value.getBytes(StandardCharsets.UTF_8);
+        int count = 0;
+        for (int i = 0; i + needle.length <= data.length; i++) {
+            boolean match = true;
+            for (int j = 0; j < needle.length && match; j++) {
+                match = data[i + j] == needle[j];
+            }
+            if (match) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,117 @@
+package nl.aurorion.blockregen;
+
+import com.cryptomorin.xseries.XMaterial;
+import nl.aurorion.blockregen.material.builtin.MinecraftMaterial;
+import nl.aurorion.blockregen.mock.MockBlockRegenPlugin;
+import nl.aurorion.blockregen.regeneration.CompactProcessStore;
+import nl.aurorion.blockregen.regeneration.struct.RegenerationProcess;
+import nl.aurorion.blockregen.regeneration.struct.SimpleLocation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactProcessStoreTests {
+
+    private final BlockRegenPlugin plugin = new MockBlockRegenPlugin();
+
+    private RegenerationProcess process(int x, int y, int z, String region, long timeLeft) {
+        RegenerationProcess process = new RegenerationProcess();
+        process.setId(UUID.randomUUID());
+        process.setLocation(new SimpleLocation("world", x, y, z));
+        process.setWorldName("world");
+        process.setPresetName("ores");
+        process.setRegionName(region);
+        process.setTimeLeft(timeLeft);
+        process.setOriginalCustomMaterial(new MinecraftMaterial(plugin, XMaterial.COAL_ORE));
+        return process;
+    }
+
+    @Test
+    public void packsAndUnpacksChunk() {
+        CompactProcessStore store = new CompactProcessStore();
+
+        RegenerationProcess first = process(1, -20, 2, "mine", 5000);
+        RegenerationProcess second = process(15, 64, 15, null, 2000);
+        store.pack("world", 0, 0, Arrays.asList(first, second));
+
+        assertEquals(2, store.size());
+        assertTrue(store.contains("world", 0, 0));
+        assertFalse(store.contains("world", 1, 0));
+
+        RegenerationProcess view = store.get("world", 1, -20, 2);
+        assertNotNull(view);
+        assertEquals(first.getId(), view.getId());
+        assertEquals(first.getLocation(), view.getLocation());
+        assertEquals("ores", view.getPresetName());
+        assertEquals("mine", view.getRegionName());
+        assertEquals(5000, view.getTimeLeft());
+        assertEquals(first.getOriginalMaterial(), view.getOriginalMaterial());
+        assertNull(store.get("world", 1, 0, 2));
+
+        List<RegenerationProcess> unpacked = store.unpack("world", 0, 0);
+        assertEquals(2, unpacked.size());
+        assertTrue(store.isEmpty());
+        assertFalse(store.contains("world", 0, 0));
+    }
+
+    @Test
+    public void removesSingleProcess() {
+        CompactProcessStore store = new CompactProcessStore();
+
+        RegenerationProcess first = process(1, 10, 1, null, 1000);
+        RegenerationProcess second = process(2, 10, 2, null, 1000);
+        RegenerationProcess third = process(3, 10, 3, null, 1000);
+        store.pack("world", 0, 0, Arrays.asList(first, second, third));
+
+        assertTrue(store.remove("world", 1, 10, 1));
+        assertFalse(store.remove("world", 1, 10, 1));
+        assertEquals(2, store.size());
+
+        // The last slot moved into the removed one.
+        RegenerationProcess moved = store.get("world", 3, 10, 3);
+        assertNotNull(moved);
+        assertEquals(third.getId(), moved.getId());
+
+        assertTrue(store.remove("world", 2, 10, 2));
+        assertTrue(store.remove("world", 3, 10, 3));
+        assertTrue(store.isEmpty());
+        assertFalse(store.contains("world", 0, 0));
+    }
+
+    @Test
+    public void takesFilteredProcesses() {
+        CompactProcessStore store = new CompactProcessStore();
+
+        RegenerationProcess first = process(1, 10, 1, "mine", 1000);
+        RegenerationProcess second = process(2, 10, 2, null, 1000);
+        RegenerationProcess third = process(40, 10, 40, "mine", 1000);
+        store.pack("world", 0, 0, Arrays.asList(first, second));
+        store.pack("world", 2, 2, Arrays.asList(third));
+
+        List<RegenerationProcess> taken = store.take(process -> "mine".equals(process.getRegionName()));
+        assertEquals(2, taken.size());
+        assertEquals(1, store.size());
+        assertFalse(store.contains("world", 2, 2));
+
+        RegenerationProcess left = store.get("world", 2, 10, 2);
+        assertNotNull(left);
+        assertEquals(second.getId(), left.getId());
+    }
+
+    @Test
+    public void keepsMissingPresetName() {
+        CompactProcessStore store = new CompactProcessStore();
+
+        RegenerationProcess process = process(1, 10, 1, null, 1000);
+        process.setPresetName(null);
+        store.pack("world", 0, 0, Arrays.asList(process));
+
+        RegenerationProcess view = store.get("world", 1, 10, 1);
+        assertNotNull(view);
+        assertNull(view.getPresetName());
+    }
+}
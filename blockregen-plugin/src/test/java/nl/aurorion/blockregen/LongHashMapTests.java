@@ -0,0 +1,53 @@
+package nl.aurorion.blockregen;
+
+import nl.aurorion.blockregen.util.BlockPositions;
+import nl.aurorion.blockregen.util.LongHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashMapTests {
+
+    @Test
+    public void behavesLikeHashMap() {
+        LongHashMap<Integer> map = new LongHashMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 100_000; i++) {
+            // Small key range to hit collisions, removals and overwrites often.
+            long key = random.nextInt(5000) - 2500;
+
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -2500; key < 2500; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        map.forEach((key, value) -> assertEquals(expected.get(key), value));
+    }
+
+    @Test
+    public void packsCoordinates() {
+        int[][] positions = {{0, 0, 0}, {-1, -64, -1}, {29_999_999, 319, -29_999_999}, {-30_000_000, 2047, 30_000_000}, {12, -2048, -7}};
+
+        for (int[] position : positions) {
+            long key = BlockPositions.pack(position[0], position[1], position[2]);
+            assertEquals(position[0], BlockPositions.unpackX(key));
+            assertEquals(position[1], BlockPositions.unpackY(key));
+            assertEquals(position[2], BlockPositions.unpackZ(key));
+        }
+
+        assertNotEquals(BlockPositions.pack(1, 2, 3), BlockPositions.pack(3, 2, 1));
+    }
+}
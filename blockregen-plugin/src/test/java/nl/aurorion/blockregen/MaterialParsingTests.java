@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.Setter;
 import nl.aurorion.blockregen.material.BlockRegenMaterial;
 import nl.aurorion.blockregen.material.MaterialManager;
+import nl.aurorion.blockregen.material.MaterialPool;
 import nl.aurorion.blockregen.material.MaterialProvider;
 import nl.aurorion.blockregen.material.builtin.MinecraftMaterial;
 import nl.aurorion.blockregen.mock.MockBlockRegenPlugin;
@@ -250,6 +251,29 @@ public class MaterialParsingTests {
                 0.5);
     }
 
+    @Test
+    public void repeatedPlacementMaterialsAddUp() {
+        PlacementMaterial placementMaterial = materialManager.parsePlacementMaterial("first:10;first:20");
+
+        assertEquals(2, placementMaterial.getValuedMaterials().size());
+
+        assertPlacementMaterial(placementMaterial,
+                m -> m instanceof MockMaterial && ((MockMaterial) m).getId().equals("first"),
+                0.3);
+        assertPlacementMaterial(placementMaterial,
+                m -> m instanceof MinecraftMaterial && ((MinecraftMaterial) m).getMaterial() == XMaterial.AIR,
+                0.7);
+    }
+
+    @Test
+    public void internsEqualMaterials() {
+        MinecraftMaterial first = MaterialPool.intern(new MinecraftMaterial(plugin, XMaterial.STONE));
+        MinecraftMaterial second = MaterialPool.intern(new MinecraftMaterial(plugin, XMaterial.STONE));
+
+        assertSame(first, second);
+        assertNotSame(first, MaterialPool.intern(new MinecraftMaterial(plugin, XMaterial.DIRT)));
+    }
+
     @Test
     public void parsesMaterialsWithColon() {
         // Expect to return namespace:first for the material id.
@@ -0,0 +1,74 @@
+package nl.aurorion.blockregen;
+
+import com.cryptomorin.xseries.XMaterial;
+import nl.aurorion.blockregen.material.BlockRegenMaterial;
+import nl.aurorion.blockregen.material.builtin.MinecraftMaterial;
+import nl.aurorion.blockregen.mock.MockBlockRegenPlugin;
+import nl.aurorion.blockregen.mock.MockNodeData;
+import nl.aurorion.blockregen.preset.material.TargetMaterial;
+import org.bukkit.block.Block;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TargetMaterialTests {
+
+    private final BlockRegenPlugin plugin = new MockBlockRegenPlugin();
+
+    private final Block block = block();
+
+    private final Block otherBlock = block();
+
+    // Fails on anything but identity, the vanilla types are matched without touching the block.
+    private static Block block() {
+        return (Block) Proxy.newProxyInstance(Block.class.getClassLoader(), new Class[]{Block.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "block";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @Test
+    public void matchesAnyVanillaType() {
+        TargetMaterial target = TargetMaterial.of(Arrays.<BlockRegenMaterial>asList(
+                new MinecraftMaterial(plugin, XMaterial.COAL_ORE),
+                new MinecraftMaterial(plugin, XMaterial.IRON_ORE),
+                new MinecraftMaterial(plugin, XMaterial.WHITE_TERRACOTTA)));
+
+        assertTrue(target.matches(block, XMaterial.IRON_ORE));
+        assertTrue(target.matches(block, XMaterial.WHITE_TERRACOTTA));
+        assertFalse(target.matches(block, XMaterial.STONE));
+        assertFalse(target.matches(block, null));
+        assertEquals(3, target.getMaterials().size());
+    }
+
+    @Test
+    public void checksMaterialsWithData() {
+        // Matches only the one block.
+        MockNodeData nodeData = new MockNodeData() {
+            @Override
+            public boolean matches(Block block) {
+                return block == TargetMaterialTests.this.block;
+            }
+        };
+
+        TargetMaterial target = TargetMaterial.of(Arrays.<BlockRegenMaterial>asList(
+                new MinecraftMaterial(plugin, XMaterial.STONE),
+                new MinecraftMaterial(plugin, XMaterial.OAK_LOG, nodeData)));
+
+        assertTrue(target.matches(block, XMaterial.OAK_LOG));
+        assertFalse(target.matches(otherBlock, XMaterial.OAK_LOG));
+        assertFalse(target.matches(block, XMaterial.BIRCH_LOG));
+        assertTrue(target.matches(otherBlock, XMaterial.STONE));
+    }
+}
@@ -0,0 +1,100 @@
+package nl.aurorion.blockregen;
+
+import nl.aurorion.blockregen.util.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTests {
+
+    private static <T> List<Long> expireTimes(TimingWheel<T> wheel, int count, long maxTicks) {
+        List<Long> times = new ArrayList<>();
+        while (times.size() < count && wheel.getCurrentTick() < maxTicks) {
+            wheel.advance(value -> times.add(wheel.getCurrentTick()));
+        }
+        return times;
+    }
+
+    @Test
+    public void expiresOnDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>();
+
+        long[] delays = {1, 5, 255, 256, 257, 1000, 65535, 65536, 70000, 200000};
+        for (long delay : delays) {
+            TimingWheel.Entry<String> entry = wheel.schedule("x", delay);
+            assertEquals(delay, entry.getDeadline());
+        }
+
+        List<Long> times = expireTimes(wheel, delays.length, 300000);
+
+        assertEquals(delays.length, times.size());
+        for (int i = 0; i < delays.length; i++) {
+            assertEquals(delays[i], times.get(i));
+        }
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void expiresOnDeadlineFromOffset() {
+        TimingWheel<Long> wheel = new TimingWheel<>();
+        Random random = new Random(42);
+
+        // Move away from tick 0 so the scheduling is not aligned with the wheel.
+        for (int i = 0; i < 1234; i++) {
+            wheel.advance(v -> fail());
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = 1 + random.nextInt(100000);
+            wheel.schedule(wheel.getCurrentTick() + delay, delay);
+        }
+
+        List<Long> mismatched = new ArrayList<>();
+        while (!wheel.isEmpty()) {
+            wheel.advance(deadline -> {
+                if (deadline != wheel.getCurrentTick()) {
+                    mismatched.add(deadline);
+                }
+            });
+        }
+
+        assertTrue(mismatched.isEmpty());
+    }
+
+    @Test
+    public void cancelledEntriesDoNotExpire() {
+        TimingWheel<String> wheel = new TimingWheel<>();
+
+        TimingWheel.Entry<String> kept = wheel.schedule("kept", 300);
+        TimingWheel.Entry<String> cancelled = wheel.schedule("cancelled", 300);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertFalse(cancelled.isScheduled());
+        assertEquals(1, wheel.size());
+
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            wheel.advance(expired::add);
+        }
+
+        assertEquals(1, expired.size());
+        assertEquals("kept", expired.get(0));
+        assertFalse(kept.isScheduled());
+    }
+
+    @Test
+    public void nonPositiveDelayExpiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>();
+        wheel.schedule("now", 0);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(expired::add);
+
+        assertEquals(1, expired.size());
+    }
+}
@@ -60,6 +60,13 @@ public interface Methods {
         ParticleDisplay.of(xParticle).spawn(location);
     }
 
+    /**
+     * Force an update of the block state (tile entity) without applying physics.
+     */
+    default void updateState(@NotNull Block block) {
+        block.getState().update(true, false);
+    }
+
     default boolean compareType(@NotNull Block block, @NotNull XMaterial xMaterial) {
         return getType(block) == xMaterial;
     }
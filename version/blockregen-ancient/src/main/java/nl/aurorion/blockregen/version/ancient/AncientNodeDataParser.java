@@ -20,6 +20,7 @@ public class AncientNodeDataParser implements NodeDataParser {
     public NodeData parse(String input) {
         AncientNodeData nodeData = new AncientNodeData();
         this.nodeDataDeserializer.deserialize(nodeData, input);
+        nodeData.compile();
         return nodeData;
     }
 }
@@ -3,8 +3,8 @@ package nl.aurorion.blockregen.version.legacy;
 import com.cryptomorin.xseries.profiles.builder.XSkull;
 import com.cryptomorin.xseries.profiles.exceptions.InvalidProfileContainerException;
 import com.cryptomorin.xseries.profiles.objects.Profileable;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.util.Serialization;
@@ -16,12 +16,15 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.block.BlockState;
 import org.bukkit.material.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 @Log
 @ToString
-@Setter
+@EqualsAndHashCode
 @NoArgsConstructor
 public class LegacyNodeData implements NodeData {
 
@@ -37,54 +40,95 @@ public class LegacyNodeData implements NodeData {
 
     private String skull;
 
-    @Override
-    public boolean matches(Block block) {
-        MaterialData data = block.getState().getData();
+    // Checks of the properties that are set. The skull is checked last, it needs the tile entity.
+    // Dropped by the setters, built again on the next match.
+    @ToString.Exclude
+    private transient volatile List<Predicate<MaterialData>> plan;
 
-        if (this.skull != null) {
-            try {
-                String profileString = XSkull.of(block).getDelegateProfile().getProfileValue();
+    public void setFacing(BlockFace facing) {
+        this.facing = facing;
+        this.plan = null;
+    }
 
-                if (profileString != null && !profileString.equals(this.skull)) {
-                    return false;
-                }
-            } catch (InvalidProfileContainerException e) {
-                // not a skull
-                return false;
-            }
+    public void setTreeSpecies(TreeSpecies treeSpecies) {
+        this.treeSpecies = treeSpecies;
+        this.plan = null;
+    }
+
+    public void setInverted(Boolean inverted) {
+        this.inverted = inverted;
+        this.plan = null;
+    }
+
+    public void setCropState(CropState cropState) {
+        this.cropState = cropState;
+        this.plan = null;
+    }
+
+    public void setSkull(String skull) {
+        this.skull = skull;
+        this.plan = null;
+    }
+
+    /**
+     * Build the checks for the properties set ahead of the first match.
+     */
+    public void compile() {
+        this.plan = buildPlan();
+    }
+
+    private List<Predicate<MaterialData>> buildPlan() {
+        List<Predicate<MaterialData>> checks = new ArrayList<>();
+
+        if (this.inverted != null) {
+            boolean inverted = this.inverted;
+            checks.add(data -> !(data instanceof Stairs) || ((Stairs) data).isInverted() == inverted);
         }
 
-        if (data instanceof Directional && this.facing != null) {
-            Directional directional = (Directional) data;
-            if (directional.getFacing() != this.facing) {
-                return false;
-            }
+        if (this.cropState != null) {
+            CropState cropState = this.cropState;
+            checks.add(data -> !(data instanceof Crops) || ((Crops) data).getState() == cropState);
         }
 
-        if (data instanceof Tree && this.facing != null) {
-            Tree tree = (Tree) data;
-            if (tree.getDirection() != this.facing) {
-                return false;
-            }
+        if (this.facing != null) {
+            BlockFace facing = this.facing;
+            checks.add(data -> !(data instanceof Directional) || ((Directional) data).getFacing() == facing);
+            checks.add(data -> !(data instanceof Tree) || ((Tree) data).getDirection() == facing);
         }
 
-        if (data instanceof Wood && this.treeSpecies != null) {
-            Wood wood = (Wood) data;
-            if (wood.getSpecies() != this.treeSpecies) {
-                return false;
-            }
+        if (this.treeSpecies != null) {
+            TreeSpecies treeSpecies = this.treeSpecies;
+            checks.add(data -> !(data instanceof Wood) || ((Wood) data).getSpecies() == treeSpecies);
         }
+        return checks;
+    }
 
-        if (data instanceof Stairs && this.inverted != null) {
-            Stairs stairs = (Stairs) data;
-            if (stairs.isInverted() != this.inverted) {
-                return false;
+    @Override
+    public boolean matches(Block block) {
+        List<Predicate<MaterialData>> plan = this.plan;
+        if (plan == null) {
+            plan = buildPlan();
+            this.plan = plan;
+        }
+
+        // Only take the block state snapshot when there's data to check.
+        if (!plan.isEmpty()) {
+            MaterialData data = block.getState().getData();
+
+            for (int i = 0; i < plan.size(); i++) {
+                if (!plan.get(i).test(data)) {
+                    return false;
+                }
             }
         }
 
-        if (data instanceof Crops && this.cropState != null) {
-            Crops crops = (Crops) data;
-            if (crops.getState() != this.cropState) {
+        if (this.skull != null) {
+            try {
+                String profileString = XSkull.of(block).getDelegateProfile().getProfileValue();
+
+                return profileString == null || profileString.equals(this.skull);
+            } catch (InvalidProfileContainerException e) {
+                // not a skull
                 return false;
             }
         }
@@ -127,6 +171,7 @@ public class LegacyNodeData implements NodeData {
             this.treeSpecies = wood.getSpecies();
         }
 
+        this.plan = null;
         log.fine(() -> String.format("Loaded block data %s (%s)", block.getType(), this));
     }
 
@@ -22,6 +22,7 @@ public class LegacyNodeDataParser implements NodeDataParser {
     public NodeData parse(String input) {
         LegacyNodeData nodeData = new LegacyNodeData();
         this.nodeDataDeserializer.deserialize(nodeData, input);
+        nodeData.compile();
         return nodeData;
     }
 }
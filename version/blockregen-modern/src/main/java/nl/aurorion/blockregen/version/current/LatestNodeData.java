@@ -3,8 +3,8 @@ package nl.aurorion.blockregen.version.current;
 import com.cryptomorin.xseries.profiles.builder.XSkull;
 import com.cryptomorin.xseries.profiles.exceptions.InvalidProfileContainerException;
 import com.cryptomorin.xseries.profiles.objects.Profileable;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.util.Serialization;
@@ -20,15 +20,19 @@ import org.bukkit.block.data.type.NoteBlock;
 import org.bukkit.block.data.type.Stairs;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Log
+@EqualsAndHashCode
 @NoArgsConstructor
-@Setter
 public class LatestNodeData implements NodeData {
 
     private BlockFace facing;
@@ -64,116 +68,207 @@ public class LatestNodeData implements NodeData {
 
     private final Set<BlockFace> faces = new HashSet<>();
 
+    // Checks of the properties that are set, cheapest first. The skull is checked last, it needs the tile entity.
+    // Dropped by the setters, built again on the next match.
+    private transient volatile List<Predicate<BlockData>> plan;
+
+    public void setFacing(BlockFace facing) {
+        this.facing = facing;
+        this.plan = null;
+    }
+
+    public void setStairShape(Stairs.Shape stairShape) {
+        this.stairShape = stairShape;
+        this.plan = null;
+    }
+
+    public void setHalf(Bisected.Half half) {
+        this.half = half;
+        this.plan = null;
+    }
+
+    public void setAxis(Axis axis) {
+        this.axis = axis;
+        this.plan = null;
+    }
+
+    public void setRotation(BlockFace rotation) {
+        this.rotation = rotation;
+        this.plan = null;
+    }
+
+    public void setAge(Integer age) {
+        this.age = age;
+        this.plan = null;
+    }
+
+    public void setSkull(String skull) {
+        this.skull = skull;
+        this.plan = null;
+    }
+
+    public void setWaterlogged(Boolean waterlogged) {
+        this.waterlogged = waterlogged;
+        this.plan = null;
+    }
+
+    public void setPowered(Boolean powered) {
+        this.powered = powered;
+        this.plan = null;
+    }
+
+    public void setInstrument(Instrument instrument) {
+        this.instrument = instrument;
+        this.plan = null;
+    }
+
+    public void setNoteId(Byte noteId) {
+        this.noteId = noteId;
+        this.plan = null;
+    }
+
+    public void setOctave(Integer octave) {
+        this.octave = octave;
+        this.plan = null;
+    }
+
+    public void setTone(Note.Tone tone) {
+        this.tone = tone;
+        this.plan = null;
+    }
+
+    public void setSharped(Boolean sharped) {
+        this.sharped = sharped;
+        this.plan = null;
+    }
+
     public void addFace(BlockFace face) {
         this.faces.add(face);
+        this.plan = null;
+    }
+
+    // For the properties of subclasses.
+    protected void invalidatePlan() {
+        this.plan = null;
     }
 
     public boolean hasFace(BlockFace face) {
         return this.faces.contains(face);
     }
 
-    @Override
-    public boolean matches(Block block) {
-        BlockData data = block.getBlockData();
-
-        log.fine(() -> String.format("Checking %s against block %s", this, data.getAsString()));
+    /**
+     * Build the checks for the properties set ahead of the first match.
+     */
+    public void compile() {
+        this.plan = buildPlan();
+    }
 
-        if (this.skull != null && block.getState() instanceof Skull) {
-            try {
-                String profileString = XSkull.of(block).getDelegateProfile().getProfileValue();
+    private List<Predicate<BlockData>> buildPlan() {
+        List<Predicate<BlockData>> checks = new ArrayList<>();
+        compile(checks);
+        return checks;
+    }
 
-                if (profileString != null && !profileString.equals(this.skull)) {
-                    return false;
-                }
-            } catch (InvalidProfileContainerException e) {
-                // not a skull
-                return false;
-            }
+    protected void compile(List<Predicate<BlockData>> checks) {
+        // Plain getters on the block data.
+        if (this.waterlogged != null) {
+            boolean waterlogged = this.waterlogged;
+            checks.add(data -> !(data instanceof Waterlogged) || ((Waterlogged) data).isWaterlogged() == waterlogged);
         }
 
-        if (data instanceof Directional && this.facing != null) {
-            Directional directional = (Directional) data;
-            if (directional.getFacing() != this.facing) {
-                return false;
-            }
+        if (this.powered != null) {
+            boolean powered = this.powered;
+            checks.add(data -> !(data instanceof Powerable) || ((Powerable) data).isPowered() == powered);
         }
 
-        if (data instanceof Stairs && this.stairShape != null) {
-            Stairs stairs = (Stairs) data;
-            if (stairs.getShape() != this.stairShape) {
-                return false;
-            }
+        if (this.age != null) {
+            int age = this.age;
+            checks.add(data -> !(data instanceof Ageable) || ((Ageable) data).getAge() == age);
         }
 
-        if (data instanceof Bisected && this.half != null) {
-            Bisected bisected = (Bisected) data;
-            if (bisected.getHalf() != this.half) {
-                return false;
-            }
+        if (this.facing != null) {
+            BlockFace facing = this.facing;
+            checks.add(data -> !(data instanceof Directional) || ((Directional) data).getFacing() == facing);
         }
 
-        if (data instanceof Orientable && this.axis != null) {
-            Orientable orientable = (Orientable) data;
-            if (orientable.getAxis() != this.axis) {
-                return false;
-            }
+        if (this.axis != null) {
+            Axis axis = this.axis;
+            checks.add(data -> !(data instanceof Orientable) || ((Orientable) data).getAxis() == axis);
         }
 
-        if (data instanceof Rotatable && this.rotation != null) {
-            Rotatable rotatable = (Rotatable) data;
-            if (rotatable.getRotation() != this.rotation) {
-                return false;
-            }
+        if (this.rotation != null) {
+            BlockFace rotation = this.rotation;
+            checks.add(data -> !(data instanceof Rotatable) || ((Rotatable) data).getRotation() == rotation);
         }
 
-        if (data instanceof Ageable && this.age != null) {
-            Ageable ageable = (Ageable) data;
-            if (ageable.getAge() != this.age) {
-                return false;
-            }
+        if (this.half != null) {
+            Bisected.Half half = this.half;
+            checks.add(data -> !(data instanceof Bisected) || ((Bisected) data).getHalf() == half);
         }
 
-        if (data instanceof Waterlogged && this.waterlogged != null) {
-            Waterlogged waterlogged = (Waterlogged) data;
-            if (waterlogged.isWaterlogged() != this.waterlogged) {
-                return false;
-            }
+        if (this.stairShape != null) {
+            Stairs.Shape stairShape = this.stairShape;
+            checks.add(data -> !(data instanceof Stairs) || ((Stairs) data).getShape() == stairShape);
         }
 
-        if (data instanceof NoteBlock) {
-            NoteBlock noteBlock = (NoteBlock) data;
-            if (this.octave != null && this.octave != noteBlock.getNote().getOctave()) {
-                return false;
-            }
+        if (this.instrument != null) {
+            Instrument instrument = this.instrument;
+            checks.add(data -> !(data instanceof NoteBlock) || ((NoteBlock) data).getInstrument() == instrument);
+        }
 
-            if (this.noteId != null && this.noteId != noteBlock.getNote().getId()) {
-                return false;
-            }
+        // Creates a Note, read it once for all the note properties.
+        if (this.octave != null || this.noteId != null || this.tone != null || this.sharped != null) {
+            Integer octave = this.octave;
+            Byte noteId = this.noteId;
+            Note.Tone tone = this.tone;
+            Boolean sharped = this.sharped;
+            checks.add(data -> {
+                if (!(data instanceof NoteBlock)) {
+                    return true;
+                }
 
-            if (this.tone != null && this.tone != noteBlock.getNote().getTone()) {
-                return false;
-            }
+                Note note = ((NoteBlock) data).getNote();
+                return (octave == null || octave == note.getOctave())
+                        && (noteId == null || noteId == note.getId())
+                        && (tone == null || tone == note.getTone())
+                        && (sharped == null || sharped == note.isSharped());
+            });
+        }
 
-            if (this.sharped != null && this.sharped != noteBlock.getNote().isSharped()) {
-                return false;
-            }
+        // Copies the faces, has to have the exact same ones.
+        if (!this.faces.isEmpty()) {
+            Set<BlockFace> faces = EnumSet.copyOf(this.faces);
+            checks.add(data -> !(data instanceof MultipleFacing) || faces.equals(((MultipleFacing) data).getFaces()));
+        }
+    }
 
-            if (this.instrument != null && this.instrument != noteBlock.getInstrument()) {
-                return false;
-            }
+    @Override
+    public boolean matches(Block block) {
+        List<Predicate<BlockData>> plan = this.plan;
+        if (plan == null) {
+            plan = buildPlan();
+            this.plan = plan;
         }
 
-        if (data instanceof Powerable) {
-            Powerable powerable = (Powerable) data;
-            if (this.powered != null && this.powered != powerable.isPowered()) {
-                return false;
+        if (!plan.isEmpty()) {
+            BlockData data = block.getBlockData();
+
+            log.fine(() -> String.format("Checking %s against block %s", this, data.getAsString()));
+
+            for (int i = 0; i < plan.size(); i++) {
+                if (!plan.get(i).test(data)) {
+                    return false;
+                }
             }
         }
 
-        if (data instanceof MultipleFacing) {
-            MultipleFacing multipleFacing = (MultipleFacing) data;
-            // Has to have the exact same faces
-            if (!this.faces.isEmpty() && !this.faces.equals(multipleFacing.getFaces())) {
+        if (this.skull != null && block.getState() instanceof Skull) {
+            try {
+                String profileString = XSkull.of(block).getDelegateProfile().getProfileValue();
+
+                return profileString == null || profileString.equals(this.skull);
+            } catch (InvalidProfileContainerException e) {
+                // not a skull
                 return false;
             }
         }
@@ -244,6 +339,7 @@ public class LatestNodeData implements NodeData {
             this.faces.addAll(multipleFacing.getFaces());
         }
 
+        this.plan = null;
         log.fine(() -> String.format("Loaded block data %s (%s)", block.getType(), this));
     }
 
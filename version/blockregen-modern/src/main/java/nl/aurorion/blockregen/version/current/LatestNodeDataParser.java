@@ -70,6 +70,7 @@ public class LatestNodeDataParser implements NodeDataParser {
     public NodeData parse(String input) {
         LatestNodeData nodeData = new LatestNodeData();
         createLatestDeserializer().deserialize(nodeData, input);
+        nodeData.compile();
         return nodeData;
     }
 }
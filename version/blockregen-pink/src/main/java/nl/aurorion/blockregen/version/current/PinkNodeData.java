@@ -1,7 +1,7 @@
 package nl.aurorion.blockregen.version.current;
 
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 import lombok.extern.java.Log;
 import nl.aurorion.blockregen.util.BukkitVersions;
 import org.bukkit.block.Block;
@@ -9,43 +9,37 @@ import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.type.FlowerBed;
 import org.bukkit.block.data.type.PinkPetals;
 
+import java.util.List;
+import java.util.function.Predicate;
+
 @Log
+@EqualsAndHashCode(callSuper = true)
 @NoArgsConstructor
-@Setter
 public class PinkNodeData extends LatestNodeData {
 
     private final static boolean FLOWER_BED = BukkitVersions.isCurrentAbove("1.21.5", true);
 
     private Integer flowerAmount;
 
+    public void setFlowerAmount(Integer flowerAmount) {
+        this.flowerAmount = flowerAmount;
+        invalidatePlan();
+    }
+
     @Override
-    public boolean matches(Block block) {
-        boolean sup = super.matches(block);
+    protected void compile(List<Predicate<BlockData>> checks) {
+        super.compile(checks);
 
-        if (!sup) {
-            return false;
+        if (this.flowerAmount == null) {
+            return;
         }
 
-        BlockData data = block.getBlockData();
-
+        int flowerAmount = this.flowerAmount;
         if (FLOWER_BED) {
-            if (data instanceof FlowerBed && this.flowerAmount != null) {
-                FlowerBed bed = (FlowerBed) data;
-                if (bed.getFlowerAmount() != this.flowerAmount) {
-                    return false;
-                }
-            }
+            checks.add(data -> !(data instanceof FlowerBed) || ((FlowerBed) data).getFlowerAmount() == flowerAmount);
         } else {
-            if (data instanceof PinkPetals && this.flowerAmount != null) {
-                PinkPetals petals = (PinkPetals) data;
-
-                if (petals.getFlowerAmount() != this.flowerAmount) {
-                    return false;
-                }
-            }
+            checks.add(data -> !(data instanceof PinkPetals) || ((PinkPetals) data).getFlowerAmount() == flowerAmount);
         }
-
-        return true;
     }
 
     @Override
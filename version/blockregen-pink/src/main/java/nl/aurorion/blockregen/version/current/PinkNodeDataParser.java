@@ -21,6 +21,7 @@ public class PinkNodeDataParser extends LatestNodeDataParser {
     public NodeData parse(String input) {
         PinkNodeData nodeData = new PinkNodeData();
         createPinkDeserializer().deserialize(nodeData, input);
+        nodeData.compile();
         return nodeData;
     }
 }